@@ -1,24 +1,104 @@
 package com.journalsystem.config;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.client.apache.GZipContentInterceptor;
+import com.journalsystem.service.fhir.FhirResponseSizeInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class FhirConfig {
     
     @Value("${fhir.server.base-url:https://hapi-fhir.app.cloud.cbh.kth.se/fhir}")
     private String fhirServerBaseUrl;
     
+    @Value("${fhir.client.pool.max-total:50}")
+    private int poolMaxTotal;
+    
+    @Value("${fhir.client.pool.max-per-route:50}")
+    private int poolMaxPerRoute;
+    
+    @Value("${fhir.client.keep-alive-ms:30000}")
+    private long keepAliveMs;
+    
+    @Value("${fhir.client.connection-ttl-ms:300000}")
+    private long connectionTtlMs;
+    
+    @Value("${fhir.client.validate-after-inactivity-ms:2000}")
+    private int validateAfterInactivityMs;
+    
+    @Value("${fhir.client.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+    
+    @Value("${fhir.client.read-timeout-ms:30000}")
+    private int readTimeoutMs;
+    
+    @Value("${fhir.client.connection-request-timeout-ms:5000}")
+    private int connectionRequestTimeoutMs;
+    
+    @Value("${fhir.client.gzip-requests:true}")
+    private boolean gzipRequests;
+    
     @Bean
     public FhirContext fhirContext() {
         return FhirContext.forR4();
     }
     
+    @Bean(destroyMethod = "shutdown")
+    public FhirConnectionPool fhirConnectionPool() {
+        FhirConnectionPool pool = new FhirConnectionPool(connectionTtlMs, TimeUnit.MILLISECONDS);
+        pool.setMaxTotal(poolMaxTotal);
+        pool.setDefaultMaxPerRoute(poolMaxPerRoute);
+        pool.setValidateAfterInactivity(validateAfterInactivityMs);
+        return pool;
+    }
+    
+    /**
+     * Closed on shutdown to stop its idle-connection evictor thread; the pool is shared
+     * and shut down by its own bean
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient fhirHttpClient(FhirConnectionPool fhirConnectionPool) {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(readTimeoutMs)
+                .setConnectionRequestTimeout(connectionRequestTimeoutMs)
+                .build();
+        
+        // Keep connections alive for as long as the server allows, capped by our own setting.
+        // Responses are decompressed transparently; Accept-Encoding: gzip is sent by default.
+        return HttpClients.custom()
+                .setConnectionManager(fhirConnectionPool)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAliveMs) : keepAliveMs;
+                })
+                .evictIdleConnections(keepAliveMs, TimeUnit.MILLISECONDS)
+                // Added first so it sees the body before it is decompressed
+                .addInterceptorFirst(new FhirResponseSizeInterceptor())
+                .build();
+    }
+    
     @Bean
-    public IGenericClient fhirClient(FhirContext fhirContext) {
-        return fhirContext.newRestfulGenericClient(fhirServerBaseUrl);
+    public IGenericClient fhirClient(FhirContext fhirContext, CloseableHttpClient fhirHttpClient) {
+        fhirContext.getRestfulClientFactory().setHttpClient(fhirHttpClient);
+        
+        IGenericClient client = fhirContext.newRestfulGenericClient(fhirServerBaseUrl);
+        client.setEncoding(EncodingEnum.JSON);
+        if (gzipRequests) {
+            client.registerInterceptor(new GZipContentInterceptor());
+        }
+        return client;
     }
-}
\ No newline at end of file
+}
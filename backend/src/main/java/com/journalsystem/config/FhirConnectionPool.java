@@ -0,0 +1,80 @@
+package com.journalsystem.config;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection pool for the FHIR client that also records how long requests
+ * wait to lease a connection, so the pool can be sized from real load.
+ */
+public class FhirConnectionPool extends PoolingHttpClientConnectionManager {
+
+    private final AtomicLong leaseRequests = new AtomicLong();
+    private final AtomicLong leaseTimeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public FhirConnectionPool(long connectionTimeToLive, TimeUnit unit) {
+        super(connectionTimeToLive, unit);
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest request = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return request.get(timeout, unit);
+                } catch (ConnectionPoolTimeoutException e) {
+                    leaseTimeouts.incrementAndGet();
+                    throw e;
+                } finally {
+                    recordWait(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    /**
+     * Pool utilisation and lease wait times
+     */
+    public Map<String, Object> getStatistics() {
+        PoolStats stats = getTotalStats();
+        long requests = leaseRequests.get();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("leased", stats.getLeased());
+        statistics.put("available", stats.getAvailable());
+        statistics.put("pending", stats.getPending());
+        statistics.put("max", stats.getMax());
+        statistics.put("maxPerRoute", getDefaultMaxPerRoute());
+        statistics.put("leaseRequests", requests);
+        statistics.put("leaseTimeouts", leaseTimeouts.get());
+        statistics.put("averageWaitMs", requests > 0 ? totalWaitNanos.get() / requests / 1_000_000.0 : 0.0);
+        statistics.put("maxWaitMs", maxWaitNanos.get() / 1_000_000.0);
+        return statistics;
+    }
+
+    private void recordWait(long nanos) {
+        leaseRequests.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+}
@@ -0,0 +1,78 @@
+package com.journalsystem.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process Hibernate second-level cache for reference data (organizations, locations,
+ * practitioners) and the queries that list it. Every region is created here with explicit
+ * size and TTL limits; Hibernate is not allowed to create unbounded regions of its own.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String ORGANIZATIONS_REGION = "organizations";
+    public static final String LOCATIONS_REGION = "locations";
+    public static final String PRACTITIONERS_REGION = "practitioners";
+    public static final String REFERENCE_QUERIES_REGION = "reference-data-queries";
+
+    // Hibernate's built-in query cache regions
+    private static final String DEFAULT_QUERY_REGION = "default-query-results-region";
+    private static final String TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Value("${entity-cache.max-entries-per-region:1000}")
+    private long maxEntriesPerRegion;
+
+    @Value("${entity-cache.query-max-entries:200}")
+    private long queryMaxEntries;
+
+    @Value("${entity-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager() {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+
+        for (String region : List.of(ORGANIZATIONS_REGION, LOCATIONS_REGION, PRACTITIONERS_REGION)) {
+            cacheManager.createCache(region, regionConfiguration(maxEntriesPerRegion, ttlSeconds));
+        }
+        cacheManager.createCache(REFERENCE_QUERIES_REGION, regionConfiguration(queryMaxEntries, ttlSeconds));
+        cacheManager.createCache(DEFAULT_QUERY_REGION, regionConfiguration(queryMaxEntries, ttlSeconds));
+
+        // One entry per table; evicting one would let stale query results through, so no limits here
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStoreByValue(false);
+        timestamps.setStatisticsEnabled(true);
+        cacheManager.createCache(TIMESTAMPS_REGION, timestamps);
+
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> regionConfiguration(long maxEntries, long ttlSeconds) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        // Hibernate caches its own disassembled state, so there is nothing to copy
+        configuration.setStoreByValue(false);
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
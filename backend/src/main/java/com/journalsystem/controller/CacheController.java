@@ -0,0 +1,24 @@
+package com.journalsystem.controller;
+
+import com.journalsystem.service.ReferenceDataCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/cache")
+@CrossOrigin(origins = "http://localhost:3000")
+public class CacheController {
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @GetMapping("/statistics")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(referenceDataCache.getStatistics());
+    }
+}
@@ -1,12 +1,18 @@
 package com.journalsystem.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.journalsystem.dto.DeltaPage;
+import com.journalsystem.dto.KeysetPage;
 import com.journalsystem.model.Condition;
 import com.journalsystem.service.ConditionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -17,25 +23,58 @@ public class ConditionController {
     @Autowired
     private ConditionService conditionService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
     public ResponseEntity<List<Condition>> getAllConditions() {
         return ResponseEntity.ok(conditionService.getAllConditions());
     }
 
+    /**
+     * Keyset-paginated variant, used when ?limit= is given
+     */
+    @GetMapping(params = "limit")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
+    public ResponseEntity<KeysetPage<Condition>> getConditionsPage(
+            @RequestParam(required = false) Long after, @RequestParam Integer limit) {
+        return ResponseEntity.ok(conditionService.getConditionsPage(after, limit));
+    }
+
+    /**
+     * Delta-sync variant, used when ?updatedSince= is given
+     */
+    @GetMapping(params = "updatedSince")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
+    public ResponseEntity<DeltaPage<Condition>> getConditionsChangedSince(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince) {
+        return ResponseEntity.ok(conditionService.getConditionsChangedSince(updatedSince));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
     public ResponseEntity<Condition> getConditionById(@PathVariable Long id) {
         return ResponseEntity.ok(conditionService.getConditionById(id));
     }
 
+    /**
+     * Streams the patient's conditions as a JSON array, pulling FHIR pages as they are written
+     */
     @GetMapping("/patient/{patientId}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
-    public ResponseEntity<List<Condition>> getConditionsByPatientId(@PathVariable Long patientId) {
+    public ResponseEntity<StreamingResponseBody> getConditionsByPatientId(@PathVariable Long patientId) {
         if (patientId == null) {
             return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(conditionService.getConditionsByPatientId(patientId));
+        return StreamingJsonResponse.array(objectMapper, conditionService.streamConditionsByPatientId(patientId));
+    }
+
+    @GetMapping(value = "/patient/{patientId}", params = "limit")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
+    public ResponseEntity<KeysetPage<Condition>> getConditionsPageByPatientId(@PathVariable Long patientId,
+            @RequestParam(required = false) String after, @RequestParam Integer limit) {
+        return ResponseEntity.ok(conditionService.getConditionsPageByPatientId(patientId, after, limit));
     }
 
     @PostMapping
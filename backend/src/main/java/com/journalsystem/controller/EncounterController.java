@@ -1,12 +1,18 @@
 package com.journalsystem.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.journalsystem.dto.DeltaPage;
+import com.journalsystem.dto.KeysetPage;
 import com.journalsystem.model.Encounter;
 import com.journalsystem.service.EncounterService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -17,25 +23,58 @@ public class EncounterController {
     @Autowired
     private EncounterService encounterService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
     public ResponseEntity<List<Encounter>> getAllEncounters() {
         return ResponseEntity.ok(encounterService.getAllEncounters());
     }
 
+    /**
+     * Keyset-paginated variant, used when ?limit= is given
+     */
+    @GetMapping(params = "limit")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
+    public ResponseEntity<KeysetPage<Encounter>> getEncountersPage(
+            @RequestParam(required = false) Long after, @RequestParam Integer limit) {
+        return ResponseEntity.ok(encounterService.getEncountersPage(after, limit));
+    }
+
+    /**
+     * Delta-sync variant, used when ?updatedSince= is given
+     */
+    @GetMapping(params = "updatedSince")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
+    public ResponseEntity<DeltaPage<Encounter>> getEncountersChangedSince(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince) {
+        return ResponseEntity.ok(encounterService.getEncountersChangedSince(updatedSince));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
     public ResponseEntity<Encounter> getEncounterById(@PathVariable Long id) {
         return ResponseEntity.ok(encounterService.getEncounterById(id));
     }
 
+    /**
+     * Streams the patient's encounters as a JSON array, pulling FHIR pages as they are written
+     */
     @GetMapping("/patient/{patientId}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
-    public ResponseEntity<List<Encounter>> getEncountersByPatientId(@PathVariable Long patientId) {
+    public ResponseEntity<StreamingResponseBody> getEncountersByPatientId(@PathVariable Long patientId) {
         if (patientId == null) {
             return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(encounterService.getEncountersByPatientId(patientId));
+        return StreamingJsonResponse.array(objectMapper, encounterService.streamEncountersByPatientId(patientId));
+    }
+
+    @GetMapping(value = "/patient/{patientId}", params = "limit")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
+    public ResponseEntity<KeysetPage<Encounter>> getEncountersPageByPatientId(@PathVariable Long patientId,
+            @RequestParam(required = false) String after, @RequestParam Integer limit) {
+        return ResponseEntity.ok(encounterService.getEncountersPageByPatientId(patientId, after, limit));
     }
 
     @PostMapping
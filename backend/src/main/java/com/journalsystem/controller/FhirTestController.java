@@ -1,9 +1,13 @@
 package com.journalsystem.controller;
 
+import com.journalsystem.config.FhirConnectionPool;
+import com.journalsystem.service.FhirIdMappingService;
+import com.journalsystem.service.FhirOutboxService;
 import com.journalsystem.service.fhir.*;
 import org.hl7.fhir.r4.model.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -37,6 +41,27 @@ public class FhirTestController {
     @Autowired
     private LocationFhirService locationFhirService;
     
+    @Autowired
+    private FhirResourceCache fhirResourceCache;
+    
+    @Autowired
+    private FhirPagingEngine fhirPagingEngine;
+    
+    @Autowired
+    private FhirOutboxService fhirOutboxService;
+    
+    @Autowired
+    private FhirConnectionPool fhirConnectionPool;
+    
+    @Autowired
+    private FhirRequestCoalescer fhirRequestCoalescer;
+    
+    @Autowired
+    private FhirResourceCounter fhirResourceCounter;
+    
+    @Autowired
+    private FhirIdMappingService fhirIdMappingService;
+    
     /**
      * Test endpoint to get FHIR server status and available resources
      */
@@ -49,16 +74,24 @@ public class FhirTestController {
             status.put("status", "connected");
             status.put("serverUrl", "https://hapi-fhir.app.cloud.cbh.kth.se/fhir");
             
+            // Count-only queries, issued concurrently
+            Map<String, Integer> counts = fhirResourceCounter.countResources(List.of(
+                    Patient.class, Observation.class, Encounter.class, Condition.class,
+                    Practitioner.class, Organization.class, Location.class));
+            
             Map<String, Integer> resourceCounts = new HashMap<>();
-            resourceCounts.put("patients", patientFhirService.getAllPatients().size());
-            resourceCounts.put("observations", observationFhirService.getAllObservations().size());
-            resourceCounts.put("encounters", encounterFhirService.getAllEncounters().size());
-            resourceCounts.put("conditions", conditionFhirService.getAllConditions().size());
-            resourceCounts.put("practitioners", practitionerFhirService.getAllPractitioners().size());
-            resourceCounts.put("organizations", organizationFhirService.getAllOrganizations().size());
-            resourceCounts.put("locations", locationFhirService.getAllLocations().size());
+            resourceCounts.put("patients", counts.get("Patient"));
+            resourceCounts.put("observations", counts.get("Observation"));
+            resourceCounts.put("encounters", counts.get("Encounter"));
+            resourceCounts.put("conditions", counts.get("Condition"));
+            resourceCounts.put("practitioners", counts.get("Practitioner"));
+            resourceCounts.put("organizations", counts.get("Organization"));
+            resourceCounts.put("locations", counts.get("Location"));
             
             status.put("resourceCounts", resourceCounts);
+            if (counts.containsValue(null)) {
+                status.put("status", "degraded");
+            }
             
         } catch (Exception e) {
             status.put("status", "error");
@@ -68,6 +101,23 @@ public class FhirTestController {
         return ResponseEntity.ok(status);
     }
     
+    /**
+     * Runtime statistics for the FHIR client layer. Staff only, although the rest of
+     * /fhir-test is open.
+     */
+    @GetMapping("/metrics")
+    @PreAuthorize("hasRole('STAFF')")
+    public ResponseEntity<Map<String, Object>> getFhirMetrics() {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("resourceCache", fhirResourceCache.getStatistics());
+        metrics.put("paging", fhirPagingEngine.getStatistics());
+        metrics.put("outbox", fhirOutboxService.getStatistics());
+        metrics.put("connectionPool", fhirConnectionPool.getStatistics());
+        metrics.put("coalescing", fhirRequestCoalescer.getStatistics());
+        metrics.put("idMappings", fhirIdMappingService.getStatistics());
+        return ResponseEntity.ok(metrics);
+    }
+    
     /**
      * Get all patients from FHIR server
      */
@@ -111,8 +161,10 @@ public class FhirTestController {
         Map<String, Object> details = new HashMap<>();
         
         try {
-            // Get patient
-            patientFhirService.getPatientById(patientId).ifPresent(patient -> {
+            // Patient, observations, encounters and conditions from one $everything operation
+            PatientFhirService.PatientRecord record = patientFhirService.getPatientRecord(patientId);
+            
+            record.getPatient().ifPresent(patient -> {
                 Map<String, Object> patientData = new HashMap<>();
                 patientData.put("id", patient.getId());
                 
@@ -124,17 +176,10 @@ public class FhirTestController {
                 details.put("patient", patientData);
             });
             
-            // Get related observations
-            List<Observation> observations = observationFhirService.getObservationsByPatient(patientId);
-            details.put("observationCount", observations.size());
-            
-            // Get related encounters
-            List<Encounter> encounters = encounterFhirService.getEncountersByPatient(patientId);
-            details.put("encounterCount", encounters.size());
-            
-            // Get related conditions
-            List<Condition> conditions = conditionFhirService.getConditionsByPatient(patientId);
-            details.put("conditionCount", conditions.size());
+            details.put("observationCount", record.getObservations().size());
+            details.put("encounterCount", record.getEncounters().size());
+            details.put("conditionCount", record.getConditions().size());
+            details.put("truncated", record.isTruncated());
             
         } catch (Exception e) {
             details.put("error", e.getMessage());
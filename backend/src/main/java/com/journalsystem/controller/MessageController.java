@@ -1,13 +1,25 @@
 package com.journalsystem.controller;
 
+import com.journalsystem.dto.DeltaPage;
+import com.journalsystem.dto.KeysetPage;
+import com.journalsystem.dto.MarkReadRequest;
+import com.journalsystem.dto.MessageHeader;
+import com.journalsystem.dto.MessageThreadNode;
 import com.journalsystem.model.Message;
+import com.journalsystem.security.StreamTicketService;
 import com.journalsystem.service.MessageService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/messages")
@@ -17,42 +29,115 @@ public class MessageController {
     @Autowired
     private MessageService messageService;
 
+    @Autowired
+    private StreamTicketService streamTicketService;
+
     @GetMapping("/user/{userId}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
-    public ResponseEntity<List<Message>> getMessagesByUserId(@PathVariable Long userId) {
+    public ResponseEntity<List<MessageHeader>> getMessagesByUserId(@PathVariable Long userId) {
         return ResponseEntity.ok(messageService.getMessagesByUserId(userId));
     }
 
+    /**
+     * Delta-sync variant, used when ?updatedSince= is given
+     */
+    @GetMapping(value = "/user/{userId}", params = "updatedSince")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
+    public ResponseEntity<DeltaPage<MessageHeader>> getMessagesChangedSince(@PathVariable Long userId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince,
+            Principal principal) {
+        return ResponseEntity.ok(messageService.getMessagesChangedSince(principal.getName(), userId, updatedSince));
+    }
+
     @GetMapping("/received/{userId}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
-    public ResponseEntity<List<Message>> getReceivedMessages(@PathVariable Long userId) {
+    public ResponseEntity<List<MessageHeader>> getReceivedMessages(@PathVariable Long userId) {
         return ResponseEntity.ok(messageService.getReceivedMessages(userId));
     }
 
+    /**
+     * Keyset-paginated inbox, used when ?limit= is given; rows have no content
+     */
+    @GetMapping(value = "/received/{userId}", params = "limit")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
+    public ResponseEntity<KeysetPage<MessageHeader>> getReceivedMessagesPage(@PathVariable Long userId,
+            @RequestParam(required = false) String after, @RequestParam Integer limit, Principal principal) {
+        return ResponseEntity.ok(messageService.getReceivedMessagesPage(principal.getName(), userId, after, limit));
+    }
+
     @GetMapping("/sent/{userId}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
-    public ResponseEntity<List<Message>> getSentMessages(@PathVariable Long userId) {
+    public ResponseEntity<List<MessageHeader>> getSentMessages(@PathVariable Long userId) {
         return ResponseEntity.ok(messageService.getSentMessages(userId));
     }
 
+    /**
+     * Keyset-paginated outbox, used when ?limit= is given; rows have no content
+     */
+    @GetMapping(value = "/sent/{userId}", params = "limit")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
+    public ResponseEntity<KeysetPage<MessageHeader>> getSentMessagesPage(@PathVariable Long userId,
+            @RequestParam(required = false) String after, @RequestParam Integer limit, Principal principal) {
+        return ResponseEntity.ok(messageService.getSentMessagesPage(principal.getName(), userId, after, limit));
+    }
+
     @GetMapping("/unread/{userId}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
-    public ResponseEntity<List<Message>> getUnreadMessages(@PathVariable Long userId) {
+    public ResponseEntity<List<MessageHeader>> getUnreadMessages(@PathVariable Long userId) {
         return ResponseEntity.ok(messageService.getUnreadMessages(userId));
     }
 
+    /**
+     * The caller's unread badge count, from a counter maintained on send, read and delete
+     */
+    @GetMapping("/unread-count")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
+    public ResponseEntity<Map<String, Long>> getUnreadCount(Principal principal) {
+        return ResponseEntity.ok(Map.of("unreadCount", messageService.getUnreadCount(principal.getName())));
+    }
+
+    /**
+     * A single-use ticket for opening the caller's event stream, valid for a few seconds
+     */
+    @PostMapping("/stream-ticket")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
+    public ResponseEntity<Map<String, String>> createStreamTicket(Principal principal) {
+        return ResponseEntity.ok(Map.of("ticket", streamTicketService.issue(principal.getName())));
+    }
+
+    /**
+     * Server-sent events: a "message" event with the header of every message the caller
+     * receives while connected. Browsers' EventSource cannot set headers, so the stream is
+     * opened with ?ticket= from POST /messages/stream-ticket rather than with the JWT.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
+    public SseEmitter streamMessages(Principal principal) {
+        return messageService.openStream(principal.getName());
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
-    public ResponseEntity<Message> getMessageById(@PathVariable Long id) {
+    public ResponseEntity<MessageHeader> getMessageById(@PathVariable Long id) {
         return ResponseEntity.ok(messageService.getMessageById(id));
     }
 
     @GetMapping("/{id}/replies")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
-    public ResponseEntity<List<Message>> getReplies(@PathVariable Long id) {
+    public ResponseEntity<List<MessageHeader>> getReplies(@PathVariable Long id) {
         return ResponseEntity.ok(messageService.getReplies(id));
     }
 
+    /**
+     * The whole conversation around a message as a flat list in reading order, each entry
+     * with its parent ID and depth; only for participants in the conversation
+     */
+    @GetMapping("/{id}/thread")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
+    public ResponseEntity<List<MessageThreadNode>> getThread(@PathVariable Long id, Principal principal) {
+        return ResponseEntity.ok(messageService.getThread(principal.getName(), id));
+    }
+
     @PostMapping
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
     public ResponseEntity<Message> createMessage(@RequestBody Message message) {
@@ -61,10 +146,19 @@ public class MessageController {
 
     @PutMapping("/{id}/read")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
-    public ResponseEntity<Message> markAsRead(@PathVariable Long id) {
+    public ResponseEntity<MessageHeader> markAsRead(@PathVariable Long id) {
         return ResponseEntity.ok(messageService.markAsRead(id));
     }
 
+    /**
+     * Bulk mark-as-read of the caller's received messages, by ID list or everything sent before a time
+     */
+    @PutMapping("/read")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
+    public ResponseEntity<Map<String, Integer>> markAsRead(@RequestBody MarkReadRequest request, Principal principal) {
+        return ResponseEntity.ok(Map.of("updated", messageService.markAsRead(principal.getName(), request)));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
     public ResponseEntity<Void> deleteMessage(@PathVariable Long id) {
@@ -1,13 +1,21 @@
 package com.journalsystem.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.journalsystem.dto.DeltaPage;
+import com.journalsystem.dto.KeysetPage;
+import com.journalsystem.dto.ObservationRow;
 import com.journalsystem.model.Observation;
 import com.journalsystem.service.ObservationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/observations")
@@ -17,25 +25,58 @@ public class ObservationController {
     @Autowired
     private ObservationService observationService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
-    public ResponseEntity<List<Observation>> getAllObservations() {
+    public ResponseEntity<List<ObservationRow>> getAllObservations() {
         return ResponseEntity.ok(observationService.getAllObservations());
     }
 
+    /**
+     * Keyset-paginated variant, used when ?limit= is given
+     */
+    @GetMapping(params = "limit")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
+    public ResponseEntity<KeysetPage<ObservationRow>> getObservationsPage(
+            @RequestParam(required = false) Long after, @RequestParam Integer limit) {
+        return ResponseEntity.ok(observationService.getObservationsPage(after, limit));
+    }
+
+    /**
+     * Delta-sync variant, used when ?updatedSince= is given
+     */
+    @GetMapping(params = "updatedSince")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
+    public ResponseEntity<DeltaPage<ObservationRow>> getObservationsChangedSince(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince) {
+        return ResponseEntity.ok(observationService.getObservationsChangedSince(updatedSince));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
     public ResponseEntity<Observation> getObservationById(@PathVariable Long id) {
         return ResponseEntity.ok(observationService.getObservationById(id));
     }
 
+    /**
+     * Streams the patient's observations as a JSON array, pulling FHIR pages as they are written
+     */
     @GetMapping("/patient/{patientId}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
-    public ResponseEntity<List<Observation>> getObservationsByPatientId(@PathVariable Long patientId) {
+    public ResponseEntity<StreamingResponseBody> getObservationsByPatientId(@PathVariable Long patientId) {
         if (patientId == null) {
             return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(observationService.getObservationsByPatientId(patientId));
+        return StreamingJsonResponse.array(objectMapper, observationService.streamObservationsByPatientId(patientId));
+    }
+
+    @GetMapping(value = "/patient/{patientId}", params = "limit")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF', 'PATIENT')")
+    public ResponseEntity<KeysetPage<ObservationRow>> getObservationsPageByPatientId(@PathVariable Long patientId,
+            @RequestParam(required = false) String after, @RequestParam Integer limit) {
+        return ResponseEntity.ok(observationService.getObservationsPageByPatientId(patientId, after, limit));
     }
 
     @PostMapping
@@ -44,6 +85,15 @@ public class ObservationController {
         return ResponseEntity.ok(observationService.createObservation(observation));
     }
 
+    /**
+     * Bulk load of observations, inserted in JDBC batches
+     */
+    @PostMapping("/batch")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
+    public ResponseEntity<Map<String, Integer>> createObservations(@RequestBody List<Observation> observations) {
+        return ResponseEntity.ok(Map.of("created", observationService.createObservations(observations)));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
     public ResponseEntity<Observation> updateObservation(@PathVariable Long id, @RequestBody Observation observation) {
@@ -1,13 +1,19 @@
 package com.journalsystem.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.journalsystem.dto.DeltaPage;
+import com.journalsystem.dto.KeysetPage;
+import com.journalsystem.dto.PatientSummary;
 import com.journalsystem.model.Patient;
 import com.journalsystem.service.PatientService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/patients")
@@ -17,10 +23,37 @@ public class PatientController {
     @Autowired
     private PatientService patientService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Streams the patient list as a JSON array while pages are still being fetched,
+     * so the response never has to be held in memory as a whole
+     */
     @GetMapping
     @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
-    public ResponseEntity<List<Patient>> getAllPatients() {
-        return ResponseEntity.ok(patientService.getAllPatients());
+    public ResponseEntity<StreamingResponseBody> getAllPatients() {
+        return StreamingJsonResponse.array(objectMapper, patientService.streamAllPatients());
+    }
+
+    /**
+     * Keyset-paginated variant, used when ?limit= is given
+     */
+    @GetMapping(params = "limit")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
+    public ResponseEntity<KeysetPage<PatientSummary>> getPatientsPage(
+            @RequestParam(required = false) Long after, @RequestParam Integer limit) {
+        return ResponseEntity.ok(patientService.getPatientsPage(after, limit));
+    }
+
+    /**
+     * Delta-sync variant, used when ?updatedSince= is given
+     */
+    @GetMapping(params = "updatedSince")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'STAFF')")
+    public ResponseEntity<DeltaPage<PatientSummary>> getPatientsChangedSince(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime updatedSince) {
+        return ResponseEntity.ok(patientService.getPatientsChangedSince(updatedSince));
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,40 @@
+package com.journalsystem.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes a stream as a JSON array while it is still being produced, so a list response
+ * never has to be held in memory as a whole
+ */
+final class StreamingJsonResponse {
+
+    private StreamingJsonResponse() {
+    }
+
+    /**
+     * The stream should already be open, so that a failing first page still produces a
+     * proper error response. It is closed once the array has been written.
+     */
+    static ResponseEntity<StreamingResponseBody> array(ObjectMapper objectMapper, Stream<?> items) {
+        StreamingResponseBody body = outputStream -> {
+            try (items; JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                Iterator<?> iterator = items.iterator();
+                while (iterator.hasNext()) {
+                    generator.writeObject(iterator.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,23 @@
+package com.journalsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rows created or updated since the client's last sync, plus the IDs of rows deleted
+ * since then, returned by the list endpoints when ?updatedSince= is given. Pass
+ * highWaterMark back as ?updatedSince= on the next poll.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeltaPage<T> {
+
+    private List<T> items;
+    private List<Long> deletedIds;
+    private LocalDateTime highWaterMark;
+}
@@ -0,0 +1,107 @@
+package com.journalsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated list, returned by the list endpoints when ?limit= is
+ * given. Pass nextCursor back as ?after= to get the following page; it is null on the
+ * last page. Rows are found by seeking past the cursor, so a deep page costs the same
+ * as the first.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetPage<T> {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private List<T> items;
+    private String nextCursor;
+
+    /**
+     * Build a page from a query that fetched one row more than the limit,
+     * which tells us whether there is a next page without a count query
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = new ArrayList<>(rows.subList(0, limit));
+        return new KeysetPage<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+
+    /**
+     * The same page with every item converted; the cursor is kept as it is
+     */
+    public <R> KeysetPage<R> map(Function<T, R> mapper) {
+        List<R> mapped = new ArrayList<>(items.size());
+        items.forEach(item -> mapped.add(mapper.apply(item)));
+        return new KeysetPage<>(mapped, nextCursor);
+    }
+
+    public static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    /**
+     * Opaque cursor for lists ordered by (timestamp, id)
+     */
+    public static String encodeCursor(LocalDateTime timestamp, Long id) {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static LocalDateTime cursorTimestamp(String cursor) {
+        try {
+            return LocalDateTime.parse(decodeCursor(cursor)[0]);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    public static Long cursorId(String cursor) {
+        return Long.valueOf(decodeCursor(cursor)[1]);
+    }
+
+    /**
+     * Opaque cursor for lists paged by the FHIR server, wrapping its link to the next page
+     */
+    public static String encodeLinkCursor(String url) {
+        String raw = "link|" + url;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String cursorLink(String cursor) {
+        String[] parts = decodeCursor(cursor);
+        if (!"link".equals(parts[0])) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return parts[1];
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.journalsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The caller's messages to mark as read: the given IDs, or everything sent before a time.
+ * receiverId is optional and, when given, must be the authenticated user.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarkReadRequest {
+    private Long receiverId;
+    private List<Long> ids;
+    private LocalDateTime before;
+}
@@ -0,0 +1,32 @@
+package com.journalsystem.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Message list row. Sender and receiver are summaries, and the parent is referenced by ID
+ * rather than serialized as a whole chain. Paged inbox and outbox rows leave the content
+ * out; it is loaded when the message is opened.
+ */
+public record MessageHeader(Long id, String subject, String content, Boolean isRead, LocalDateTime sentAt,
+                            LocalDateTime readAt, UserSummary sender, UserSummary receiver, Long parentMessageId) {
+
+    // Used by JPQL constructor expressions, which cannot build the nested users themselves
+    public MessageHeader(Long id, String subject, String content, Boolean isRead, LocalDateTime sentAt,
+                         LocalDateTime readAt, Long senderId, String senderUsername, String senderFirstName,
+                         String senderLastName, Long receiverId, String receiverUsername, String receiverFirstName,
+                         String receiverLastName, Long parentMessageId) {
+        this(id, subject, content, isRead, sentAt, readAt,
+                UserSummary.of(senderId, senderUsername, senderFirstName, senderLastName),
+                UserSummary.of(receiverId, receiverUsername, receiverFirstName, receiverLastName),
+                parentMessageId);
+    }
+
+    // Header without the body, for the paged inbox and outbox
+    public MessageHeader(Long id, String subject, Boolean isRead, LocalDateTime sentAt, LocalDateTime readAt,
+                         Long senderId, String senderUsername, String senderFirstName, String senderLastName,
+                         Long receiverId, String receiverUsername, String receiverFirstName, String receiverLastName,
+                         Long parentMessageId) {
+        this(id, subject, null, isRead, sentAt, readAt, senderId, senderUsername, senderFirstName, senderLastName,
+                receiverId, receiverUsername, receiverFirstName, receiverLastName, parentMessageId);
+    }
+}
@@ -0,0 +1,24 @@
+package com.journalsystem.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * One message of a thread. Threads are returned flat in depth-first order, with the depth
+ * and parent ID to indent by instead of nested replies.
+ */
+public record MessageThreadNode(Long id, String subject, String content, Boolean isRead, LocalDateTime sentAt,
+                                LocalDateTime readAt, UserSummary sender, UserSummary receiver,
+                                Long parentMessageId, Integer depth) {
+
+    // Used by the Message.findThread result set mapping
+    public MessageThreadNode(Long id, String subject, String content, Boolean isRead, LocalDateTime sentAt,
+                             LocalDateTime readAt, Long senderId, String senderUsername, String senderFirstName,
+                             String senderLastName, Long receiverId, String receiverUsername,
+                             String receiverFirstName, String receiverLastName, Long parentMessageId,
+                             Integer depth) {
+        this(id, subject, content, isRead, sentAt, readAt,
+                UserSummary.of(senderId, senderUsername, senderFirstName, senderLastName),
+                UserSummary.of(receiverId, receiverUsername, receiverFirstName, receiverLastName),
+                parentMessageId, depth);
+    }
+}
@@ -0,0 +1,24 @@
+package com.journalsystem.dto;
+
+import com.journalsystem.model.Observation;
+
+import java.time.LocalDateTime;
+
+/**
+ * Observation list row. Related entities are referenced by ID only.
+ */
+public record ObservationRow(Long id, Long patientId, Long encounterId, Long practitionerId, String observationType,
+                             String value, String unit, String notes, LocalDateTime observationDate) {
+
+    /**
+     * Row for an observation built in memory, e.g. one converted from FHIR
+     */
+    public static ObservationRow from(Observation observation) {
+        return new ObservationRow(observation.getId(),
+                observation.getPatient() != null ? observation.getPatient().getId() : null,
+                observation.getEncounter() != null ? observation.getEncounter().getId() : null,
+                observation.getPractitioner() != null ? observation.getPractitioner().getId() : null,
+                observation.getObservationType(), observation.getValue(), observation.getUnit(),
+                observation.getNotes(), observation.getObservationDate());
+    }
+}
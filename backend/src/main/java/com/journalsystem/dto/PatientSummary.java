@@ -0,0 +1,35 @@
+package com.journalsystem.dto;
+
+import com.journalsystem.model.Patient;
+import com.journalsystem.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Patient list row. Carries the linked user as a {@link UserSummary} instead of the full entity.
+ */
+public record PatientSummary(Long id, String personalNumber, LocalDate dateOfBirth, String address,
+                             String phoneNumber, String bloodType, String allergies, String medications,
+                             String firstName, String lastName, UserSummary user) {
+
+    // Used by JPQL constructor expressions, which cannot build the nested user themselves
+    public PatientSummary(Long id, String personalNumber, LocalDate dateOfBirth, String address,
+                          String phoneNumber, String bloodType, String allergies, String medications,
+                          Long userId, String username, String firstName, String lastName) {
+        this(id, personalNumber, dateOfBirth, address, phoneNumber, bloodType, allergies, medications,
+                firstName, lastName, UserSummary.of(userId, username, firstName, lastName));
+    }
+
+    /**
+     * Summary of a patient built in memory, e.g. one converted from FHIR
+     */
+    public static PatientSummary from(Patient patient) {
+        User user = patient.getUser();
+        return new PatientSummary(patient.getId(), patient.getPersonalNumber(), patient.getDateOfBirth(),
+                patient.getAddress(), patient.getPhoneNumber(), patient.getBloodType(), patient.getAllergies(),
+                patient.getMedications(),
+                user != null ? user.getFirstName() : patient.getFirstName(),
+                user != null ? user.getLastName() : patient.getLastName(),
+                user != null ? new UserSummary(user.getId(), user.getUsername(), user.getFirstName(), user.getLastName()) : null);
+    }
+}
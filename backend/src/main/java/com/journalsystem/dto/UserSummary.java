@@ -0,0 +1,11 @@
+package com.journalsystem.dto;
+
+/**
+ * The parts of a user that other resources show, without credentials or contact details
+ */
+public record UserSummary(Long id, String username, String firstName, String lastName) {
+
+    public static UserSummary of(Long id, String username, String firstName, String lastName) {
+        return id != null ? new UserSummary(id, username, firstName, lastName) : null;
+    }
+}
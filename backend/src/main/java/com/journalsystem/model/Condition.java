@@ -1,5 +1,6 @@
 package com.journalsystem.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -7,25 +8,45 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "conditions")
+@NamedEntityGraph(name = "Condition.withAssociations",
+        attributeNodes = {
+                @NamedAttributeNode(value = "patient", subgraph = "patient"),
+                @NamedAttributeNode(value = "practitioner", subgraph = "practitioner"),
+                @NamedAttributeNode(value = "encounter", subgraph = "encounter")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "patient", attributeNodes = @NamedAttributeNode("user")),
+                @NamedSubgraph(name = "practitioner", attributeNodes = {
+                        @NamedAttributeNode("user"), @NamedAttributeNode("organization")}),
+                @NamedSubgraph(name = "encounter", attributeNodes = {
+                        @NamedAttributeNode(value = "patient", subgraph = "patient"),
+                        @NamedAttributeNode(value = "practitioner", subgraph = "practitioner"),
+                        @NamedAttributeNode(value = "location", subgraph = "location")}),
+                @NamedSubgraph(name = "location", attributeNodes = @NamedAttributeNode("organization"))
+        })
+@Table(name = "conditions", indexes = {
+        @Index(name = "idx_conditions_patient_diagnosis_date", columnList = "patient_id, diagnosis_date, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Condition {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "conditions_seq")
+    @SequenceGenerator(name = "conditions_seq", sequenceName = "conditions_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id", nullable = false)
     private Patient patient;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "practitioner_id", nullable = false)
     private Practitioner practitioner;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "encounter_id")
     private Encounter encounter;
 
@@ -1,5 +1,6 @@
 package com.journalsystem.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -7,25 +8,41 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "encounters")
+@NamedEntityGraph(name = "Encounter.withAssociations",
+        attributeNodes = {
+                @NamedAttributeNode(value = "patient", subgraph = "patient"),
+                @NamedAttributeNode(value = "practitioner", subgraph = "practitioner"),
+                @NamedAttributeNode(value = "location", subgraph = "location")
+        },
+        subgraphs = {
+                @NamedSubgraph(name = "patient", attributeNodes = @NamedAttributeNode("user")),
+                @NamedSubgraph(name = "practitioner", attributeNodes = {
+                        @NamedAttributeNode("user"), @NamedAttributeNode("organization")}),
+                @NamedSubgraph(name = "location", attributeNodes = @NamedAttributeNode("organization"))
+        })
+@Table(name = "encounters", indexes = {
+        @Index(name = "idx_encounters_patient_encounter_date", columnList = "patient_id, encounter_date, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Encounter {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "encounters_seq")
+    @SequenceGenerator(name = "encounters_seq", sequenceName = "encounters_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id", nullable = false)
     private Patient patient;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "practitioner_id", nullable = false)
     private Practitioner practitioner;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "location_id")
     private Location location;
 
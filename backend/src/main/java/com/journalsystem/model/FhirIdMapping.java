@@ -0,0 +1,45 @@
+package com.journalsystem.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Links a local entity ID to the logical ID of the same resource on the FHIR server
+ */
+@Entity
+@Table(name = "fhir_id_mappings",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_fhir_id_mappings_local", columnNames = {"resource_type", "local_id"}),
+                @UniqueConstraint(name = "uk_fhir_id_mappings_fhir", columnNames = {"resource_type", "fhir_id"})
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FhirIdMapping {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fhir_id_mappings_seq")
+    @SequenceGenerator(name = "fhir_id_mappings_seq", sequenceName = "fhir_id_mappings_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "resource_type", nullable = false)
+    private String resourceType;
+
+    @Column(name = "local_id", nullable = false)
+    private Long localId;
+
+    @Column(name = "fhir_id", nullable = false)
+    private String fhirId;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
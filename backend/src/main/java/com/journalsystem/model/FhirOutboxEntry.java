@@ -0,0 +1,74 @@
+package com.journalsystem.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A pending FHIR write, stored in the same transaction as the local change
+ * and replicated to the FHIR server by the outbox dispatcher
+ */
+@Entity
+@Table(name = "fhir_outbox", indexes = {
+        @Index(name = "idx_fhir_outbox_status_id", columnList = "status, id"),
+        @Index(name = "idx_fhir_outbox_resource", columnList = "resource_type, resource_id, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FhirOutboxEntry {
+
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    public enum Status {
+        PENDING,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fhir_outbox_seq")
+    @SequenceGenerator(name = "fhir_outbox_seq", sequenceName = "fhir_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String resourceType;
+
+    // Local ID of the entity; writes for the same resource are replicated in order
+    @Column(nullable = false)
+    private String resourceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Operation operation;
+
+    // FHIR JSON of the resource, empty for deletes
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 2000)
+    private String lastError;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -1,5 +1,7 @@
 package com.journalsystem.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.journalsystem.dto.MessageThreadNode;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -7,21 +9,71 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
+@NamedEntityGraph(name = "Message.withAssociations",
+        attributeNodes = {
+                @NamedAttributeNode("sender"),
+                @NamedAttributeNode("receiver"),
+                @NamedAttributeNode(value = "parentMessage", subgraph = "parentMessage")
+        },
+        subgraphs = @NamedSubgraph(name = "parentMessage", attributeNodes = {
+                @NamedAttributeNode("sender"), @NamedAttributeNode("receiver")}))
+// Whole thread of a message: up to the root, then every reply below it, depth-first by path.
+// Both walks stop at a message already on their path, so a parent cycle cannot recurse forever;
+// in a cycle the message where the walk up came back round is taken as the root.
+@NamedNativeQuery(name = "Message.findThread", resultSetMapping = "MessageThreadNode", query =
+        "WITH RECURSIVE ancestors (id, parent_message_id, path, cycle) AS ( " +
+        "    SELECT id, parent_message_id, ARRAY[id], false FROM messages WHERE id = :id " +
+        "    UNION ALL " +
+        "    SELECT m.id, m.parent_message_id, a.path || m.id, m.id = ANY(a.path) " +
+        "    FROM messages m JOIN ancestors a ON m.id = a.parent_message_id WHERE NOT a.cycle), " +
+        "thread (id, depth, path) AS ( " +
+        "    SELECT id, 0, ARRAY[id] FROM ancestors WHERE parent_message_id IS NULL OR cycle " +
+        "    UNION ALL " +
+        "    SELECT m.id, t.depth + 1, t.path || m.id FROM messages m JOIN thread t ON m.parent_message_id = t.id " +
+        "    WHERE NOT m.id = ANY(t.path)) " +
+        "SELECT m.id, m.subject, m.content, m.is_read, m.sent_at, m.read_at, " +
+        "       s.id AS sender_id, s.username AS sender_username, s.first_name AS sender_first_name, " +
+        "       s.last_name AS sender_last_name, r.id AS receiver_id, r.username AS receiver_username, " +
+        "       r.first_name AS receiver_first_name, r.last_name AS receiver_last_name, " +
+        "       m.parent_message_id, t.depth " +
+        "FROM thread t JOIN messages m ON m.id = t.id " +
+        "JOIN users s ON s.id = m.sender_id JOIN users r ON r.id = m.receiver_id " +
+        "ORDER BY t.path")
+@SqlResultSetMapping(name = "MessageThreadNode", classes = @ConstructorResult(
+        targetClass = MessageThreadNode.class, columns = {
+                @ColumnResult(name = "id", type = Long.class),
+                @ColumnResult(name = "subject"),
+                @ColumnResult(name = "content"),
+                @ColumnResult(name = "is_read", type = Boolean.class),
+                @ColumnResult(name = "sent_at", type = LocalDateTime.class),
+                @ColumnResult(name = "read_at", type = LocalDateTime.class),
+                @ColumnResult(name = "sender_id", type = Long.class),
+                @ColumnResult(name = "sender_username"),
+                @ColumnResult(name = "sender_first_name"),
+                @ColumnResult(name = "sender_last_name"),
+                @ColumnResult(name = "receiver_id", type = Long.class),
+                @ColumnResult(name = "receiver_username"),
+                @ColumnResult(name = "receiver_first_name"),
+                @ColumnResult(name = "receiver_last_name"),
+                @ColumnResult(name = "parent_message_id", type = Long.class),
+                @ColumnResult(name = "depth", type = Integer.class)}))
 @Table(name = "messages")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Message {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "messages_seq")
+    @SequenceGenerator(name = "messages_seq", sequenceName = "messages_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender_id", nullable = false)
     private User sender;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "receiver_id", nullable = false)
     private User receiver;
 
@@ -34,7 +86,7 @@ public class Message {
     @Column(nullable = false)
     private Boolean isRead = false;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_message_id")
     private Message parentMessage;
 
@@ -44,8 +96,17 @@ public class Message {
     @Column
     private LocalDateTime readAt;
 
+    @Column
+    private LocalDateTime updatedAt;
+
     @PrePersist
     protected void onCreate() {
         sentAt = LocalDateTime.now();
+        updatedAt = sentAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
     }
 }
@@ -0,0 +1,48 @@
+package com.journalsystem.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Record of a deleted row, so that delta-sync clients learn about deletions
+ */
+@Entity
+@Table(name = "tombstones", indexes = {
+        @Index(name = "idx_tombstones_type_deleted_at", columnList = "resource_type, deleted_at"),
+        @Index(name = "idx_tombstones_sender_deleted_at", columnList = "sender_id, deleted_at"),
+        @Index(name = "idx_tombstones_receiver_deleted_at", columnList = "receiver_id, deleted_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Tombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tombstones_seq")
+    @SequenceGenerator(name = "tombstones_seq", sequenceName = "tombstones_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String resourceType;
+
+    @Column(nullable = false)
+    private Long resourceId;
+
+    // Set for messages only: the two users whose delta sync should report the deletion
+    @Column
+    private Long senderId;
+
+    @Column
+    private Long receiverId;
+
+    @Column(nullable = false)
+    private LocalDateTime deletedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        deletedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,25 @@
+package com.journalsystem.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of unread messages a user has received, kept up to date by MessageService so
+ * the unread badge does not have to count the inbox
+ */
+@Entity
+@Table(name = "unread_counts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UnreadCount {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long unreadCount;
+}
@@ -2,13 +2,44 @@ package com.journalsystem.repository;
 
 import com.journalsystem.model.Condition;
 import com.journalsystem.model.Patient;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ConditionRepository extends JpaRepository<Condition, Long> {
+    @Override
+    @EntityGraph("Condition.withAssociations")
+    List<Condition> findAll();
+
+    @Override
+    @EntityGraph("Condition.withAssociations")
+    Optional<Condition> findById(Long id);
+
     List<Condition> findByPatient(Patient patient);
+
+    @EntityGraph("Condition.withAssociations")
     List<Condition> findByPatientOrderByDiagnosisDateDesc(Patient patient);
+
+    // Keyset pagination: the first page, then every page after the last row of the previous one
+    @EntityGraph("Condition.withAssociations")
+    List<Condition> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @EntityGraph("Condition.withAssociations")
+    List<Condition> findByUpdatedAtGreaterThanEqualOrderByUpdatedAtAscIdAsc(LocalDateTime since);
+
+    @EntityGraph("Condition.withAssociations")
+    List<Condition> findByPatientOrderByDiagnosisDateDescIdDesc(Patient patient, Limit limit);
+
+    @EntityGraph("Condition.withAssociations")
+    @Query("SELECT c FROM Condition c WHERE c.patient = :patient " +
+           "AND c.diagnosisDate <= :diagnosisDate AND (c.diagnosisDate < :diagnosisDate OR c.id < :id) " +
+           "ORDER BY c.diagnosisDate DESC, c.id DESC")
+    List<Condition> findByPatientBefore(Patient patient, LocalDateTime diagnosisDate, Long id, Limit limit);
 }
@@ -3,14 +3,45 @@ package com.journalsystem.repository;
 import com.journalsystem.model.Encounter;
 import com.journalsystem.model.Patient;
 import com.journalsystem.model.Practitioner;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface EncounterRepository extends JpaRepository<Encounter, Long> {
+    @Override
+    @EntityGraph("Encounter.withAssociations")
+    List<Encounter> findAll();
+
+    @Override
+    @EntityGraph("Encounter.withAssociations")
+    Optional<Encounter> findById(Long id);
+
     List<Encounter> findByPatient(Patient patient);
     List<Encounter> findByPractitioner(Practitioner practitioner);
+
+    @EntityGraph("Encounter.withAssociations")
     List<Encounter> findByPatientOrderByEncounterDateDesc(Patient patient);
+
+    // Keyset pagination: the first page, then every page after the last row of the previous one
+    @EntityGraph("Encounter.withAssociations")
+    List<Encounter> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @EntityGraph("Encounter.withAssociations")
+    List<Encounter> findByUpdatedAtGreaterThanEqualOrderByUpdatedAtAscIdAsc(LocalDateTime since);
+
+    @EntityGraph("Encounter.withAssociations")
+    List<Encounter> findByPatientOrderByEncounterDateDescIdDesc(Patient patient, Limit limit);
+
+    @EntityGraph("Encounter.withAssociations")
+    @Query("SELECT e FROM Encounter e WHERE e.patient = :patient " +
+           "AND e.encounterDate <= :encounterDate AND (e.encounterDate < :encounterDate OR e.id < :id) " +
+           "ORDER BY e.encounterDate DESC, e.id DESC")
+    List<Encounter> findByPatientBefore(Patient patient, LocalDateTime encounterDate, Long id, Limit limit);
 }
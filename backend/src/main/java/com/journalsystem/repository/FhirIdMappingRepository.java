@@ -0,0 +1,32 @@
+package com.journalsystem.repository;
+
+import com.journalsystem.model.FhirIdMapping;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FhirIdMappingRepository extends JpaRepository<FhirIdMapping, Long> {
+    Optional<FhirIdMapping> findByResourceTypeAndLocalId(String resourceType, Long localId);
+
+    Optional<FhirIdMapping> findByResourceTypeAndFhirId(String resourceType, String fhirId);
+
+    List<FhirIdMapping> findByResourceTypeAndLocalIdIn(String resourceType, Collection<Long> localIds);
+
+    @Modifying
+    @Query("DELETE FROM FhirIdMapping m WHERE m.resourceType = :resourceType AND (m.localId = :localId OR m.fhirId = :fhirId)")
+    int deleteConflicting(String resourceType, Long localId, String fhirId);
+
+    @Modifying
+    @Query("DELETE FROM FhirIdMapping m WHERE m.resourceType = :resourceType AND (m.localId IN :localIds OR m.fhirId IN :fhirIds)")
+    int deleteConflicting(String resourceType, Collection<Long> localIds, Collection<String> fhirIds);
+
+    @Modifying
+    @Query("DELETE FROM FhirIdMapping m WHERE m.resourceType = :resourceType AND m.localId = :localId")
+    int deleteByResourceTypeAndLocalId(String resourceType, Long localId);
+}
@@ -0,0 +1,27 @@
+package com.journalsystem.repository;
+
+import com.journalsystem.model.FhirOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FhirOutboxRepository extends JpaRepository<FhirOutboxEntry, Long> {
+    /**
+     * Lock the oldest due entries, skipping rows another dispatcher has already locked.
+     * An entry only qualifies while no earlier entry for the same resource is pending,
+     * locked or not, so writes to one resource are never sent out of order.
+     */
+    @Query(value = "SELECT o.* FROM fhir_outbox o " +
+            "WHERE o.status = 'PENDING' AND (o.next_attempt_at IS NULL OR o.next_attempt_at <= :now) " +
+            "AND NOT EXISTS (SELECT 1 FROM fhir_outbox e WHERE e.resource_type = o.resource_type " +
+            "AND e.resource_id = o.resource_id AND e.status = 'PENDING' AND e.id < o.id) " +
+            "ORDER BY o.id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<FhirOutboxEntry> claimDue(LocalDateTime now, int limit);
+    Optional<FhirOutboxEntry> findFirstByStatusOrderByIdAsc(FhirOutboxEntry.Status status);
+    long countByStatus(FhirOutboxEntry.Status status);
+}
@@ -1,14 +1,45 @@
 package com.journalsystem.repository;
 
+import com.journalsystem.config.SecondLevelCacheConfig;
 import com.journalsystem.model.Location;
 import com.journalsystem.model.Organization;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface LocationRepository extends JpaRepository<Location, Long> {
+    @Override
+    @EntityGraph(attributePaths = "organization")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.REFERENCE_QUERIES_REGION)
+    })
+    List<Location> findAll();
+
+    // A query rather than findById, for the same reason as in PractitionerRepository
+    @EntityGraph(attributePaths = "organization")
+    @Query("SELECT l FROM Location l WHERE l.id = :id")
+    Optional<Location> findWithAssociationsById(Long id);
+
+    @EntityGraph(attributePaths = "organization")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.REFERENCE_QUERIES_REGION)
+    })
     List<Location> findByOrganization(Organization organization);
+
+    @EntityGraph(attributePaths = "organization")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.REFERENCE_QUERIES_REGION)
+    })
     List<Location> findByCity(String city);
 }
@@ -1,17 +1,120 @@
 package com.journalsystem.repository;
 
+import com.journalsystem.dto.MessageHeader;
 import com.journalsystem.model.Message;
 import com.journalsystem.model.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
+    String MESSAGE_HEADER = "SELECT new com.journalsystem.dto.MessageHeader(m.id, m.subject, m.content, m.isRead, " +
+            "m.sentAt, m.readAt, s.id, s.username, s.firstName, s.lastName, r.id, r.username, r.firstName, r.lastName, " +
+            "m.parentMessage.id) FROM Message m JOIN m.sender s JOIN m.receiver r ";
+
+    // Same without the body; every messages column it reads is in the covering inbox/outbox indexes
+    String MESSAGE_HEADER_WITHOUT_BODY = "SELECT new com.journalsystem.dto.MessageHeader(m.id, m.subject, m.isRead, " +
+            "m.sentAt, m.readAt, s.id, s.username, s.firstName, s.lastName, r.id, r.username, r.firstName, r.lastName, " +
+            "m.parentMessage.id) FROM Message m JOIN m.sender s JOIN m.receiver r ";
+
+    @Override
+    @EntityGraph("Message.withAssociations")
+    List<Message> findAll();
+
+    @Override
+    @EntityGraph("Message.withAssociations")
+    Optional<Message> findById(Long id);
+
+    // Row lock held until commit, so a concurrent markAsRead cannot change isRead under a delete
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM Message m WHERE m.id = :id")
+    Optional<Message> findByIdForUpdate(Long id);
+
+    // Only the call that actually flips isRead gets 1 back, which keeps the unread counter exact
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Message m SET m.isRead = true, m.readAt = :readAt, m.updatedAt = :readAt " +
+           "WHERE m.id = :id AND m.isRead = false")
+    int markReadIfUnread(Long id, LocalDateTime readAt);
+
+    // Bulk mark-as-read; the receiver condition keeps callers to their own inbox
+    @Modifying
+    @Query("UPDATE Message m SET m.isRead = true, m.readAt = :readAt, m.updatedAt = :readAt " +
+           "WHERE m.receiver.id = :receiverId AND m.isRead = false AND m.id IN :ids")
+    int markReadByIds(Long receiverId, Collection<Long> ids, LocalDateTime readAt);
+
+    @Modifying
+    @Query("UPDATE Message m SET m.isRead = true, m.readAt = :readAt, m.updatedAt = :readAt " +
+           "WHERE m.receiver.id = :receiverId AND m.isRead = false AND m.sentAt < :before")
+    int markReadSentBefore(Long receiverId, LocalDateTime before, LocalDateTime readAt);
+
+    @EntityGraph("Message.withAssociations")
     List<Message> findBySenderOrderBySentAtDesc(User sender);
+
+    @EntityGraph("Message.withAssociations")
     List<Message> findByReceiverOrderBySentAtDesc(User receiver);
+
+    @EntityGraph("Message.withAssociations")
     List<Message> findBySenderOrReceiverOrderBySentAtDesc(User sender, User receiver);
+
+    @EntityGraph("Message.withAssociations")
     List<Message> findByReceiverAndIsReadFalse(User receiver);
+
+    @EntityGraph("Message.withAssociations")
     List<Message> findByParentMessage(Message parentMessage);
+
+    // Lean headers for the list endpoints
+    @Query(MESSAGE_HEADER + "WHERE s.id = :userId OR r.id = :userId ORDER BY m.sentAt DESC")
+    List<MessageHeader> findHeadersByUser(Long userId);
+
+    @Query(MESSAGE_HEADER + "WHERE r.id = :userId ORDER BY m.sentAt DESC")
+    List<MessageHeader> findHeadersReceivedBy(Long userId);
+
+    @Query(MESSAGE_HEADER + "WHERE s.id = :userId ORDER BY m.sentAt DESC")
+    List<MessageHeader> findHeadersSentBy(Long userId);
+
+    @Query(MESSAGE_HEADER + "WHERE r.id = :userId AND m.isRead = false")
+    List<MessageHeader> findUnreadHeadersReceivedBy(Long userId);
+
+    @Query(MESSAGE_HEADER_WITHOUT_BODY + "WHERE m.id = :id")
+    Optional<MessageHeader> findHeaderById(Long id);
+
+    // A single opened message with its body; the parent is referenced by ID only
+    @Query(MESSAGE_HEADER + "WHERE m.id = :id")
+    Optional<MessageHeader> findHeaderWithContentById(Long id);
+
+    @Query(MESSAGE_HEADER + "WHERE m.parentMessage.id = :parentMessageId")
+    List<MessageHeader> findHeadersByParentMessageId(Long parentMessageId);
+
+    // Keyset-paginated inbox and outbox, newest first: the first page, then every page after the last row.
+    // The sentAt <= bound is what the index range scan starts from; the OR only breaks ties on the cursor's timestamp.
+    @Query(MESSAGE_HEADER_WITHOUT_BODY + "WHERE r.id = :userId ORDER BY m.sentAt DESC, m.id DESC")
+    List<MessageHeader> findInboxHeaders(Long userId, Limit limit);
+
+    @Query(MESSAGE_HEADER_WITHOUT_BODY + "WHERE r.id = :userId " +
+           "AND m.sentAt <= :sentAt AND (m.sentAt < :sentAt OR m.id < :id) " +
+           "ORDER BY m.sentAt DESC, m.id DESC")
+    List<MessageHeader> findInboxHeadersBefore(Long userId, LocalDateTime sentAt, Long id, Limit limit);
+
+    @Query(MESSAGE_HEADER_WITHOUT_BODY + "WHERE s.id = :userId ORDER BY m.sentAt DESC, m.id DESC")
+    List<MessageHeader> findOutboxHeaders(Long userId, Limit limit);
+
+    @Query(MESSAGE_HEADER_WITHOUT_BODY + "WHERE s.id = :userId " +
+           "AND m.sentAt <= :sentAt AND (m.sentAt < :sentAt OR m.id < :id) " +
+           "ORDER BY m.sentAt DESC, m.id DESC")
+    List<MessageHeader> findOutboxHeadersBefore(Long userId, LocalDateTime sentAt, Long id, Limit limit);
+
+    @Query(MESSAGE_HEADER + "WHERE (s.id = :userId OR r.id = :userId) AND m.updatedAt >= :since " +
+           "ORDER BY m.updatedAt, m.id")
+    List<MessageHeader> findHeadersByUserUpdatedSince(Long userId, LocalDateTime since);
 }
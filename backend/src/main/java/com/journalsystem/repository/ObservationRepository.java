@@ -1,16 +1,57 @@
 package com.journalsystem.repository;
 
+import com.journalsystem.dto.ObservationRow;
 import com.journalsystem.model.Observation;
 import com.journalsystem.model.Patient;
 import com.journalsystem.model.Encounter;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ObservationRepository extends JpaRepository<Observation, Long> {
+    String OBSERVATION_ROW = "SELECT new com.journalsystem.dto.ObservationRow(o.id, o.patient.id, o.encounter.id, " +
+            "o.practitioner.id, o.observationType, o.value, o.unit, o.notes, o.observationDate) FROM Observation o ";
+
+    @Override
+    @EntityGraph("Observation.withAssociations")
+    List<Observation> findAll();
+
+    @Override
+    @EntityGraph("Observation.withAssociations")
+    Optional<Observation> findById(Long id);
+
     List<Observation> findByPatient(Patient patient);
     List<Observation> findByEncounter(Encounter encounter);
+
+    @EntityGraph("Observation.withAssociations")
     List<Observation> findByPatientOrderByObservationDateDesc(Patient patient);
+
+    // Lean rows for the list endpoints; related entities are referenced by foreign key only
+    @Query(OBSERVATION_ROW + "ORDER BY o.id")
+    List<ObservationRow> findAllRows();
+
+    @Query(OBSERVATION_ROW + "WHERE o.patient.id = :patientId ORDER BY o.observationDate DESC, o.id DESC")
+    List<ObservationRow> findRowsByPatientId(Long patientId);
+
+    // Keyset pagination: the first page, then every page after the last row of the previous one
+    @Query(OBSERVATION_ROW + "WHERE o.id > :id ORDER BY o.id")
+    List<ObservationRow> findRowsAfter(Long id, Limit limit);
+
+    @Query(OBSERVATION_ROW + "WHERE o.updatedAt >= :since ORDER BY o.updatedAt, o.id")
+    List<ObservationRow> findRowsUpdatedSince(LocalDateTime since);
+
+    @Query(OBSERVATION_ROW + "WHERE o.patient.id = :patientId ORDER BY o.observationDate DESC, o.id DESC")
+    List<ObservationRow> findRowsByPatientId(Long patientId, Limit limit);
+
+    @Query(OBSERVATION_ROW + "WHERE o.patient.id = :patientId " +
+           "AND o.observationDate <= :observationDate AND (o.observationDate < :observationDate OR o.id < :id) " +
+           "ORDER BY o.observationDate DESC, o.id DESC")
+    List<ObservationRow> findRowsByPatientIdBefore(Long patientId, LocalDateTime observationDate, Long id, Limit limit);
 }
@@ -1,15 +1,48 @@
 package com.journalsystem.repository;
 
+import com.journalsystem.dto.PatientSummary;
 import com.journalsystem.model.Patient;
 import com.journalsystem.model.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
+    String PATIENT_SUMMARY = "SELECT new com.journalsystem.dto.PatientSummary(p.id, p.personalNumber, p.dateOfBirth, " +
+            "p.address, p.phoneNumber, p.bloodType, p.allergies, p.medications, u.id, u.username, u.firstName, u.lastName) " +
+            "FROM Patient p LEFT JOIN p.user u ";
+
+    @Override
+    @EntityGraph(attributePaths = "user")
+    List<Patient> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "user")
+    Optional<Patient> findById(Long id);
+
     Optional<Patient> findByUser(User user);
     Optional<Patient> findByPersonalNumber(String personalNumber);
+
+    @EntityGraph(attributePaths = "user")
     Optional<Patient> findByUserId(Long userId);
+
+    @Query(PATIENT_SUMMARY + "ORDER BY p.id")
+    List<PatientSummary> findAllSummaries();
+
+    @Query(PATIENT_SUMMARY + "WHERE p.id > :id ORDER BY p.id")
+    List<PatientSummary> findSummariesAfter(Long id, Limit limit);
+
+    @Query(PATIENT_SUMMARY + "WHERE p.updatedAt >= :since ORDER BY p.updatedAt, p.id")
+    List<PatientSummary> findSummariesUpdatedSince(LocalDateTime since);
+
+    @Query("SELECT p FROM Patient p LEFT JOIN FETCH p.user WHERE p.personalNumber IN :personalNumbers")
+    List<Patient> findByPersonalNumberInWithUser(Collection<String> personalNumbers);
 }
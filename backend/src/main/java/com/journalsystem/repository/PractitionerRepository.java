@@ -1,9 +1,15 @@
 package com.journalsystem.repository;
 
+import com.journalsystem.config.SecondLevelCacheConfig;
 import com.journalsystem.model.Practitioner;
 import com.journalsystem.model.User;
 import com.journalsystem.model.Organization;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,7 +17,29 @@ import java.util.List;
 
 @Repository
 public interface PractitionerRepository extends JpaRepository<Practitioner, Long> {
+    @Override
+    @EntityGraph("Practitioner.withAssociations")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.REFERENCE_QUERIES_REGION)
+    })
+    List<Practitioner> findAll();
+
+    // A query rather than findById: a practitioner served from the second-level cache skips
+    // the entity graph, and its user would be an uninitialized proxy outside the transaction
+    @EntityGraph("Practitioner.withAssociations")
+    @Query("SELECT p FROM Practitioner p WHERE p.id = :id")
+    Optional<Practitioner> findWithAssociationsById(Long id);
+
     Optional<Practitioner> findByUser(User user);
+
+    @EntityGraph("Practitioner.withAssociations")
     Optional<Practitioner> findByUserId(Long userId);
+
+    @EntityGraph("Practitioner.withAssociations")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = SecondLevelCacheConfig.REFERENCE_QUERIES_REGION)
+    })
     List<Practitioner> findByOrganization(Organization organization);
 }
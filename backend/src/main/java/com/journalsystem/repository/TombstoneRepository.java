@@ -0,0 +1,25 @@
+package com.journalsystem.repository;
+
+import com.journalsystem.model.Tombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TombstoneRepository extends JpaRepository<Tombstone, Long> {
+    @Query("SELECT DISTINCT t.resourceId FROM Tombstone t WHERE t.resourceType = :resourceType AND t.deletedAt >= :since")
+    List<Long> findResourceIdsDeletedSince(String resourceType, LocalDateTime since);
+
+    // Tombstones from before sender and receiver were recorded carry neither and go to everyone
+    @Query("SELECT DISTINCT t.resourceId FROM Tombstone t WHERE t.resourceType = 'Message' AND t.deletedAt >= :since " +
+           "AND (t.senderId = :userId OR t.receiverId = :userId OR (t.senderId IS NULL AND t.receiverId IS NULL))")
+    List<Long> findMessageIdsDeletedSince(Long userId, LocalDateTime since);
+
+    @Modifying
+    @Query("DELETE FROM Tombstone t WHERE t.deletedAt < :before")
+    int deleteOlderThan(LocalDateTime before);
+}
@@ -0,0 +1,31 @@
+package com.journalsystem.repository;
+
+import com.journalsystem.model.UnreadCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UnreadCountRepository extends JpaRepository<UnreadCount, Long> {
+    @Query("SELECT c.unreadCount FROM UnreadCount c WHERE c.userId = :userId")
+    Optional<Long> findUnreadCountByUserId(Long userId);
+
+    // Single-statement increment, so concurrent sends to the same user never lose one;
+    // returns 0 while the user has no counter row yet
+    @Modifying
+    @Query("UPDATE UnreadCount c SET c.unreadCount = c.unreadCount + 1 WHERE c.userId = :userId")
+    int increment(Long userId);
+
+    @Modifying
+    @Query(value = "INSERT INTO unread_counts (user_id, unread_count) VALUES (:userId, 0) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int createIfMissing(Long userId);
+
+    @Modifying
+    @Query("UPDATE UnreadCount c SET c.unreadCount = CASE WHEN c.unreadCount > :by THEN c.unreadCount - :by ELSE 0 END " +
+           "WHERE c.userId = :userId")
+    int decrement(Long userId, long by);
+}
@@ -17,12 +17,17 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String MESSAGE_STREAM_PATH = "/messages/stream";
+
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private StreamTicketService streamTicketService;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
@@ -39,19 +44,33 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             } catch (Exception e) {
                 // Invalid token
             }
+        } else if (MESSAGE_STREAM_PATH.equals(request.getServletPath()) && request.getParameter("ticket") != null) {
+            // EventSource cannot send an Authorization header; the stream takes a single-use ticket instead
+            streamTicketService.redeem(request.getParameter("ticket"))
+                    .ifPresent(ticketUser -> authenticate(ticketUser, request));
         }
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             UserDetails userDetails = userDetailsService.loadUserByUsername(username);
 
             if (jwtUtil.validateToken(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authenticationToken =
-                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+                setAuthentication(userDetails, request);
             }
         }
 
         filterChain.doFilter(request, response);
     }
+
+    private void authenticate(String username, HttpServletRequest request) {
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            setAuthentication(userDetailsService.loadUserByUsername(username), request);
+        }
+    }
+
+    private void setAuthentication(UserDetails userDetails, HttpServletRequest request) {
+        UsernamePasswordAuthenticationToken authenticationToken =
+                new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+    }
 }
@@ -0,0 +1,55 @@
+package com.journalsystem.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Short-lived, single-use tickets that open the caller's message event stream. EventSource
+ * cannot send an Authorization header, so the stream URL carries a ticket instead of the
+ * JWT; a ticket that shows up in a log has already been spent or expired. Tickets are held
+ * in process, so the stream must be opened on the node that issued the ticket, as with the
+ * event hub itself.
+ */
+@Component
+public class StreamTicketService {
+
+    private static final int TICKET_BYTES = 32;
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${message-stream.ticket-ttl-ms:30000}")
+    private long ticketTtlMs;
+
+    private Cache<String, String> usernamesByTicket;
+
+    @PostConstruct
+    void init() {
+        usernamesByTicket = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ticketTtlMs))
+                .build();
+    }
+
+    public String issue(String username) {
+        byte[] bytes = new byte[TICKET_BYTES];
+        random.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        usernamesByTicket.put(ticket, username);
+        return ticket;
+    }
+
+    /**
+     * The user the ticket was issued to, if it is unexpired and unused. Removing it is
+     * atomic, so of two requests with the same ticket only one gets the user.
+     */
+    public Optional<String> redeem(String ticket) {
+        return Optional.ofNullable(usernamesByTicket.asMap().remove(ticket));
+    }
+}
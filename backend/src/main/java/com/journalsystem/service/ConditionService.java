@@ -1,19 +1,26 @@
 package com.journalsystem.service;
 
+import com.journalsystem.dto.DeltaPage;
+import com.journalsystem.dto.KeysetPage;
 import com.journalsystem.model.Condition;
 import com.journalsystem.model.Patient;
 import com.journalsystem.repository.ConditionRepository;
 import com.journalsystem.repository.PatientRepository;
 import com.journalsystem.service.fhir.ConditionFhirService;
+import com.journalsystem.service.fhir.PatientFhirService;
 import com.journalsystem.converter.ConditionFhirConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ConditionService {
@@ -27,6 +34,9 @@ public class ConditionService {
     @Autowired
     private ConditionFhirService conditionFhirService;
     
+    @Autowired
+    private PatientFhirService patientFhirService;
+    
     @Autowired
     private ConditionFhirConverter conditionFhirConverter;
     
@@ -34,12 +44,36 @@ public class ConditionService {
     private boolean fhirEnabled;
     
     @Autowired
-    private PatientService patientService;
+    private FhirIdMappingService fhirIdMappingService;
+
+    @Autowired
+    private DeltaSyncService deltaSyncService;
 
+    @Transactional(readOnly = true)
     public List<Condition> getAllConditions() {
         return conditionRepository.findAll();
     }
 
+    /**
+     * One page of all conditions in ID order, starting after the given ID
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Condition> getConditionsPage(Long after, Integer limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<Condition> rows = conditionRepository.findByIdGreaterThanOrderByIdAsc(after != null ? after : 0L, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, condition -> condition.getId().toString());
+    }
+
+    /**
+     * Conditions created or updated since the given high-water mark, and the IDs of deleted ones
+     */
+    @Transactional(readOnly = true)
+    public DeltaPage<Condition> getConditionsChangedSince(LocalDateTime since) {
+        return deltaSyncService.changesSince("Condition", since,
+                conditionRepository::findByUpdatedAtGreaterThanEqualOrderByUpdatedAtAscIdAsc);
+    }
+
+    @Transactional(readOnly = true)
     public Condition getConditionById(Long id) {
         return conditionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Condition not found"));
@@ -54,24 +88,14 @@ public class ConditionService {
         
         // If not found locally and FHIR is enabled, try FHIR
         if (fhirEnabled) {
-            // Get the actual FHIR ID for this local ID
-            String fhirId = patientService.getFhirIdForLocalId(patientId);
-            if (fhirId == null) {
-                // If no mapping found, try using the ID as-is
-                fhirId = patientId.toString();
-            }
+            // Get the actual FHIR ID for this local ID (the ID itself if there is no mapping)
+            String fhirId = fhirIdMappingService.resolveFhirId("Patient", patientId);
             
+            // One shared patient record, fetched with concurrent requests for the rest of the chart
             List<org.hl7.fhir.r4.model.Condition> fhirConditions = 
-                    conditionFhirService.getConditionsByPatient(fhirId);
+                    patientFhirService.getPatientRecord(fhirId).getConditions();
             return fhirConditions.stream()
-                    .map(fhirCondition -> {
-                        Condition localCondition = conditionFhirConverter.fromFhir(fhirCondition);
-                        // Set a dummy patient with just the ID for reference
-                        Patient patient = new Patient();
-                        patient.setId(patientId);
-                        localCondition.setPatient(patient);
-                        return localCondition;
-                    })
+                    .map(fhirCondition -> fromFhir(fhirCondition, patientId))
                     .collect(Collectors.toList());
         }
         
@@ -79,10 +103,63 @@ public class ConditionService {
         return new ArrayList<>();
     }
 
+    /**
+     * Stream a patient's conditions. For patients that only exist on the FHIR server, pages are
+     * pulled as the stream is consumed, so only one page is held in memory at a time.
+     * The caller must close the stream.
+     */
+    public Stream<Condition> streamConditionsByPatientId(Long patientId) {
+        Optional<Patient> localPatient = patientRepository.findById(patientId);
+        if (localPatient.isPresent()) {
+            return conditionRepository.findByPatientOrderByDiagnosisDateDesc(localPatient.get()).stream();
+        }
+
+        if (fhirEnabled) {
+            String fhirId = fhirIdMappingService.resolveFhirId("Patient", patientId);
+            return conditionFhirService.streamConditionsByPatient(fhirId)
+                    .map(fhirCondition -> fromFhir(fhirCondition, patientId));
+        }
+        return Stream.empty();
+    }
+
+    private Condition fromFhir(org.hl7.fhir.r4.model.Condition fhirCondition, Long patientId) {
+        Condition localCondition = conditionFhirConverter.fromFhir(fhirCondition);
+        // Set a dummy patient with just the ID for reference
+        Patient patient = new Patient();
+        patient.setId(patientId);
+        localCondition.setPatient(patient);
+        return localCondition;
+    }
+
+    /**
+     * One page of a patient's conditions, newest first, starting after the given cursor.
+     * For patients that only exist on the FHIR server the page comes from a sorted FHIR
+     * search, and the cursor carries the server's link to the next page.
+     */
+    public KeysetPage<Condition> getConditionsPageByPatientId(Long patientId, String after, Integer limit) {
+        Optional<Patient> localPatient = patientRepository.findById(patientId);
+        if (localPatient.isEmpty()) {
+            if (!fhirEnabled) {
+                return new KeysetPage<>(new ArrayList<>(), null);
+            }
+            String fhirId = fhirIdMappingService.resolveFhirId("Patient", patientId);
+            return conditionFhirService.getConditionsPageByPatient(fhirId, after, KeysetPage.clampLimit(limit))
+                    .map(fhirCondition -> fromFhir(fhirCondition, patientId));
+        }
+
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<Condition> rows = after == null
+                ? conditionRepository.findByPatientOrderByDiagnosisDateDescIdDesc(localPatient.get(), Limit.of(pageSize + 1))
+                : conditionRepository.findByPatientBefore(localPatient.get(),
+                        KeysetPage.cursorTimestamp(after), KeysetPage.cursorId(after), Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, condition -> KeysetPage.encodeCursor(condition.getDiagnosisDate(), condition.getId()));
+    }
+
     public Condition createCondition(Condition condition) {
         return conditionRepository.save(condition);
     }
 
+    @Transactional
     public Condition updateCondition(Long id, Condition conditionDetails) {
         Condition condition = getConditionById(id);
 
@@ -105,7 +182,9 @@ public class ConditionService {
         return conditionRepository.save(condition);
     }
 
+    @Transactional
     public void deleteCondition(Long id) {
         conditionRepository.deleteById(id);
+        deltaSyncService.recordDeletion("Condition", id);
     }
 }
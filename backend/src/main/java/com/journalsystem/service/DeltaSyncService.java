@@ -0,0 +1,107 @@
+package com.journalsystem.service;
+
+import com.journalsystem.dto.DeltaPage;
+import com.journalsystem.model.Tombstone;
+import com.journalsystem.repository.TombstoneRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Incremental sync for polling clients: rows changed since a high-water mark, plus
+ * tombstones for rows deleted since then. The returned mark lags the clock by a short
+ * overlap, so rows whose transaction committed late (or that reached a replica late)
+ * are sent again on the next poll rather than missed; clients apply them as upserts.
+ */
+@Service
+public class DeltaSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeltaSyncService.class);
+
+    @Autowired
+    private TombstoneRepository tombstoneRepository;
+
+    @Value("${delta-sync.overlap-seconds:5}")
+    private long overlapSeconds;
+
+    @Value("${delta-sync.tombstone-retention-days:30}")
+    private long tombstoneRetentionDays;
+
+    /**
+     * Record a deletion in the same transaction as the delete itself
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeletion(String resourceType, Long id) {
+        Tombstone tombstone = new Tombstone();
+        tombstone.setResourceType(resourceType);
+        tombstone.setResourceId(id);
+        tombstoneRepository.save(tombstone);
+    }
+
+    /**
+     * Record a deleted message together with its sender and receiver, so only they hear of it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordMessageDeletion(Long id, Long senderId, Long receiverId) {
+        Tombstone tombstone = new Tombstone();
+        tombstone.setResourceType("Message");
+        tombstone.setResourceId(id);
+        tombstone.setSenderId(senderId);
+        tombstone.setReceiverId(receiverId);
+        tombstoneRepository.save(tombstone);
+    }
+
+    /**
+     * Everything of the given type that changed since the client's last high-water mark
+     */
+    public <T> DeltaPage<T> changesSince(String resourceType, LocalDateTime since,
+                                         Function<LocalDateTime, List<T>> changedSince) {
+        return changesSince(since, changedSince,
+                deletedSince -> tombstoneRepository.findResourceIdsDeletedSince(resourceType, deletedSince));
+    }
+
+    /**
+     * Changes to one user's messages; deletions are limited to messages they sent or received
+     */
+    public <T> DeltaPage<T> messageChangesSince(Long userId, LocalDateTime since,
+                                                Function<LocalDateTime, List<T>> changedSince) {
+        return changesSince(since, changedSince,
+                deletedSince -> tombstoneRepository.findMessageIdsDeletedSince(userId, deletedSince));
+    }
+
+    private <T> DeltaPage<T> changesSince(LocalDateTime since, Function<LocalDateTime, List<T>> changedSince,
+                                          Function<LocalDateTime, List<Long>> deletedSince) {
+        LocalDateTime now = LocalDateTime.now();
+        if (since.isBefore(now.minusDays(tombstoneRetentionDays))) {
+            // Deletions older than this have been purged; the client has to reload the full list
+            throw new IllegalArgumentException("updatedSince is older than " + tombstoneRetentionDays
+                    + " days; reload the full list instead");
+        }
+        LocalDateTime highWaterMark = now.minusSeconds(overlapSeconds);
+        if (highWaterMark.isBefore(since)) {
+            highWaterMark = since;
+        }
+
+        List<T> items = changedSince.apply(since);
+        List<Long> deletedIds = deletedSince.apply(since);
+        return new DeltaPage<>(items, deletedIds, highWaterMark);
+    }
+
+    @Scheduled(fixedDelayString = "${delta-sync.purge-interval-ms:3600000}")
+    @Transactional
+    public void purgeTombstones() {
+        int purged = tombstoneRepository.deleteOlderThan(LocalDateTime.now().minusDays(tombstoneRetentionDays));
+        if (purged > 0) {
+            logger.info("Purged {} tombstones older than {} days", purged, tombstoneRetentionDays);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.journalsystem.service;
 
+import com.journalsystem.dto.DeltaPage;
+import com.journalsystem.dto.KeysetPage;
 import com.journalsystem.model.Encounter;
 import com.journalsystem.model.Patient;
 import com.journalsystem.model.Practitioner;
@@ -7,15 +9,20 @@ import com.journalsystem.repository.EncounterRepository;
 import com.journalsystem.repository.PatientRepository;
 import com.journalsystem.repository.PractitionerRepository;
 import com.journalsystem.service.fhir.EncounterFhirService;
+import com.journalsystem.service.fhir.PatientFhirService;
 import com.journalsystem.converter.EncounterFhirConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class EncounterService {
@@ -32,6 +39,9 @@ public class EncounterService {
     @Autowired
     private EncounterFhirService encounterFhirService;
     
+    @Autowired
+    private PatientFhirService patientFhirService;
+    
     @Autowired
     private EncounterFhirConverter encounterFhirConverter;
     
@@ -39,12 +49,36 @@ public class EncounterService {
     private boolean fhirEnabled;
     
     @Autowired
-    private PatientService patientService;
+    private FhirIdMappingService fhirIdMappingService;
+
+    @Autowired
+    private DeltaSyncService deltaSyncService;
 
+    @Transactional(readOnly = true)
     public List<Encounter> getAllEncounters() {
         return encounterRepository.findAll();
     }
 
+    /**
+     * One page of all encounters in ID order, starting after the given ID
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Encounter> getEncountersPage(Long after, Integer limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<Encounter> rows = encounterRepository.findByIdGreaterThanOrderByIdAsc(after != null ? after : 0L, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, encounter -> encounter.getId().toString());
+    }
+
+    /**
+     * Encounters created or updated since the given high-water mark, and the IDs of deleted ones
+     */
+    @Transactional(readOnly = true)
+    public DeltaPage<Encounter> getEncountersChangedSince(LocalDateTime since) {
+        return deltaSyncService.changesSince("Encounter", since,
+                encounterRepository::findByUpdatedAtGreaterThanEqualOrderByUpdatedAtAscIdAsc);
+    }
+
+    @Transactional(readOnly = true)
     public Encounter getEncounterById(Long id) {
         return encounterRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Encounter not found"));
@@ -59,24 +93,14 @@ public class EncounterService {
         
         // If not found locally and FHIR is enabled, try FHIR
         if (fhirEnabled) {
-            // Get the actual FHIR ID for this local ID
-            String fhirId = patientService.getFhirIdForLocalId(patientId);
-            if (fhirId == null) {
-                // If no mapping found, try using the ID as-is
-                fhirId = patientId.toString();
-            }
+            // Get the actual FHIR ID for this local ID (the ID itself if there is no mapping)
+            String fhirId = fhirIdMappingService.resolveFhirId("Patient", patientId);
             
+            // One shared patient record, fetched with concurrent requests for the rest of the chart
             List<org.hl7.fhir.r4.model.Encounter> fhirEncounters = 
-                    encounterFhirService.getEncountersByPatient(fhirId);
+                    patientFhirService.getPatientRecord(fhirId).getEncounters();
             return fhirEncounters.stream()
-                    .map(fhirEncounter -> {
-                        Encounter localEncounter = encounterFhirConverter.fromFhir(fhirEncounter);
-                        // Set a dummy patient with just the ID for reference
-                        Patient patient = new Patient();
-                        patient.setId(patientId);
-                        localEncounter.setPatient(patient);
-                        return localEncounter;
-                    })
+                    .map(fhirEncounter -> fromFhir(fhirEncounter, patientId))
                     .collect(Collectors.toList());
         }
         
@@ -84,10 +108,63 @@ public class EncounterService {
         return new ArrayList<>();
     }
 
+    /**
+     * Stream a patient's encounters. For patients that only exist on the FHIR server, pages are
+     * pulled as the stream is consumed, so only one page is held in memory at a time.
+     * The caller must close the stream.
+     */
+    public Stream<Encounter> streamEncountersByPatientId(Long patientId) {
+        Optional<Patient> localPatient = patientRepository.findById(patientId);
+        if (localPatient.isPresent()) {
+            return encounterRepository.findByPatientOrderByEncounterDateDesc(localPatient.get()).stream();
+        }
+
+        if (fhirEnabled) {
+            String fhirId = fhirIdMappingService.resolveFhirId("Patient", patientId);
+            return encounterFhirService.streamEncountersByPatient(fhirId)
+                    .map(fhirEncounter -> fromFhir(fhirEncounter, patientId));
+        }
+        return Stream.empty();
+    }
+
+    private Encounter fromFhir(org.hl7.fhir.r4.model.Encounter fhirEncounter, Long patientId) {
+        Encounter localEncounter = encounterFhirConverter.fromFhir(fhirEncounter);
+        // Set a dummy patient with just the ID for reference
+        Patient patient = new Patient();
+        patient.setId(patientId);
+        localEncounter.setPatient(patient);
+        return localEncounter;
+    }
+
+    /**
+     * One page of a patient's encounters, newest first, starting after the given cursor.
+     * For patients that only exist on the FHIR server the page comes from a sorted FHIR
+     * search, and the cursor carries the server's link to the next page.
+     */
+    public KeysetPage<Encounter> getEncountersPageByPatientId(Long patientId, String after, Integer limit) {
+        Optional<Patient> localPatient = patientRepository.findById(patientId);
+        if (localPatient.isEmpty()) {
+            if (!fhirEnabled) {
+                return new KeysetPage<>(new ArrayList<>(), null);
+            }
+            String fhirId = fhirIdMappingService.resolveFhirId("Patient", patientId);
+            return encounterFhirService.getEncountersPageByPatient(fhirId, after, KeysetPage.clampLimit(limit))
+                    .map(fhirEncounter -> fromFhir(fhirEncounter, patientId));
+        }
+
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<Encounter> rows = after == null
+                ? encounterRepository.findByPatientOrderByEncounterDateDescIdDesc(localPatient.get(), Limit.of(pageSize + 1))
+                : encounterRepository.findByPatientBefore(localPatient.get(),
+                        KeysetPage.cursorTimestamp(after), KeysetPage.cursorId(after), Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, encounter -> KeysetPage.encodeCursor(encounter.getEncounterDate(), encounter.getId()));
+    }
+
     public Encounter createEncounter(Encounter encounter) {
         return encounterRepository.save(encounter);
     }
 
+    @Transactional
     public Encounter updateEncounter(Long id, Encounter encounterDetails) {
         Encounter encounter = getEncounterById(id);
 
@@ -107,7 +184,9 @@ public class EncounterService {
         return encounterRepository.save(encounter);
     }
 
+    @Transactional
     public void deleteEncounter(Long id) {
         encounterRepository.deleteById(id);
+        deltaSyncService.recordDeletion("Encounter", id);
     }
 }
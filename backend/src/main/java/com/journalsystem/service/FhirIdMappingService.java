@@ -0,0 +1,244 @@
+package com.journalsystem.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.journalsystem.model.FhirIdMapping;
+import com.journalsystem.repository.FhirIdMappingRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bidirectional mapping between local entity IDs and FHIR logical IDs, per resource type.
+ * The table is the source of truth. Lookups are read through a bounded cache per type;
+ * a miss goes to the table's unique index, so mappings stored by other nodes are found too.
+ */
+@Service
+public class FhirIdMappingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FhirIdMappingService.class);
+
+    // Keeps the IN lists of bulk lookups and deletes well below driver parameter limits
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private FhirIdMappingRepository mappingRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${fhir.id-mapping.max-entries-per-type:10000}")
+    private int maxEntriesPerType;
+
+    private final Map<String, TypeMappings> mappings = new ConcurrentHashMap<>();
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        // Writes commit before returning, even inside a caller's transaction, so memory
+        // is only updated with mappings the table is known to hold
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public Optional<String> getFhirId(String resourceType, Long localId) {
+        TypeMappings typeMappings = mappingsFor(resourceType);
+        String fhirId = typeMappings.getFhirId(localId);
+        if (fhirId != null) {
+            return Optional.of(fhirId);
+        }
+        Optional<FhirIdMapping> stored = mappingRepository.findByResourceTypeAndLocalId(resourceType, localId);
+        stored.ifPresent(mapping -> typeMappings.put(mapping.getLocalId(), mapping.getFhirId()));
+        return stored.map(FhirIdMapping::getFhirId);
+    }
+
+    public Optional<Long> getLocalId(String resourceType, String fhirId) {
+        TypeMappings typeMappings = mappingsFor(resourceType);
+        Long localId = typeMappings.getLocalId(fhirId);
+        if (localId != null) {
+            return Optional.of(localId);
+        }
+        Optional<FhirIdMapping> stored = mappingRepository.findByResourceTypeAndFhirId(resourceType, fhirId);
+        stored.ifPresent(mapping -> typeMappings.put(mapping.getLocalId(), mapping.getFhirId()));
+        return stored.map(FhirIdMapping::getLocalId);
+    }
+
+    /**
+     * FHIR ID for a local ID, falling back to the local ID itself for resources
+     * that were stored on the FHIR server under their local ID
+     */
+    public String resolveFhirId(String resourceType, Long localId) {
+        return getFhirId(resourceType, localId).orElse(localId.toString());
+    }
+
+    /**
+     * Record that a local entity and a FHIR resource are the same. Mappings that already
+     * hold are not written again, so this is cheap to call on every read.
+     */
+    public void map(String resourceType, Long localId, String fhirId) {
+        if (fhirId.equals(getFhirId(resourceType, localId).orElse(null))
+                && localId.equals(getLocalId(resourceType, fhirId).orElse(null))) {
+            return;
+        }
+
+        FhirIdMapping mapping = new FhirIdMapping();
+        mapping.setResourceType(resourceType);
+        mapping.setLocalId(localId);
+        mapping.setFhirId(fhirId);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                mappingRepository.deleteConflicting(resourceType, localId, fhirId);
+                mappingRepository.save(mapping);
+            });
+        } catch (DataAccessException e) {
+            // Another node stored a mapping at the same time; the next lookup reads whatever the table holds
+            logger.warn("Could not store FHIR ID mapping {}/{} -> {}: {}", resourceType, localId, fhirId, e.getMessage());
+            return;
+        }
+        mappingsFor(resourceType).put(localId, fhirId);
+    }
+
+    /**
+     * Record many mappings at once, e.g. for every patient in a search result. Mappings
+     * already in memory or in the table are skipped; the rest replace any conflicting rows
+     * with one bulk delete and batched inserts in a single transaction.
+     */
+    public void mapAll(String resourceType, Map<Long, String> fhirIdsByLocalId) {
+        TypeMappings typeMappings = mappingsFor(resourceType);
+        Map<Long, String> changed = new HashMap<>();
+        fhirIdsByLocalId.forEach((localId, fhirId) -> {
+            if (!fhirId.equals(typeMappings.getFhirId(localId)) || !localId.equals(typeMappings.getLocalId(fhirId))) {
+                changed.put(localId, fhirId);
+            }
+        });
+
+        // A stored row with the same local ID and FHIR ID already holds in both directions,
+        // since each column is unique per type
+        for (List<Long> chunk : chunks(new ArrayList<>(changed.keySet()))) {
+            for (FhirIdMapping stored : mappingRepository.findByResourceTypeAndLocalIdIn(resourceType, chunk)) {
+                if (stored.getFhirId().equals(changed.get(stored.getLocalId()))) {
+                    typeMappings.put(stored.getLocalId(), stored.getFhirId());
+                    changed.remove(stored.getLocalId());
+                }
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        List<FhirIdMapping> mappings = new ArrayList<>();
+        changed.forEach((localId, fhirId) -> {
+            FhirIdMapping mapping = new FhirIdMapping();
+            mapping.setResourceType(resourceType);
+            mapping.setLocalId(localId);
+            mapping.setFhirId(fhirId);
+            mappings.add(mapping);
+        });
+
+        List<List<Long>> localIdChunks = chunks(new ArrayList<>(changed.keySet()));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (List<Long> localIds : localIdChunks) {
+                    mappingRepository.deleteConflicting(resourceType, localIds,
+                            localIds.stream().map(changed::get).toList());
+                }
+                mappingRepository.saveAll(mappings);
+            });
+        } catch (DataAccessException e) {
+            // Another node stored some of the same mappings at the same time; lookups read them from the table
+            logger.warn("Could not store {} FHIR ID mappings for {}: {}", mappings.size(), resourceType, e.getMessage());
+            return;
+        }
+        changed.forEach(typeMappings::put);
+    }
+
+    /**
+     * Forget the mapping for a local entity, e.g. after it has been deleted
+     */
+    public void unmap(String resourceType, Long localId) {
+        transactionTemplate.executeWithoutResult(status ->
+                mappingRepository.deleteByResourceTypeAndLocalId(resourceType, localId));
+        mappingsFor(resourceType).remove(localId);
+    }
+
+    /**
+     * Number of mappings held in memory per resource type
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        mappings.forEach((resourceType, typeMappings) -> statistics.put(resourceType, typeMappings.size()));
+        return statistics;
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += CHUNK_SIZE) {
+            chunks.add(ids.subList(start, Math.min(start + CHUNK_SIZE, ids.size())));
+        }
+        return chunks;
+    }
+
+    private TypeMappings mappingsFor(String resourceType) {
+        return mappings.computeIfAbsent(resourceType, type -> new TypeMappings(maxEntriesPerType));
+    }
+
+    /**
+     * Both directions of one type's mappings, each a Caffeine cache capped at maxEntries.
+     * Reads are lock-free; writes are serialized so the two directions stay in step.
+     * An entry evicted from one direction is simply looked up in the table again.
+     */
+    private static class TypeMappings {
+        private final Cache<Long, String> fhirIds;
+        private final Cache<String, Long> localIds;
+
+        TypeMappings(int maxEntries) {
+            this.fhirIds = Caffeine.newBuilder().maximumSize(maxEntries).build();
+            this.localIds = Caffeine.newBuilder().maximumSize(maxEntries).build();
+        }
+
+        String getFhirId(Long localId) {
+            return fhirIds.getIfPresent(localId);
+        }
+
+        Long getLocalId(String fhirId) {
+            return localIds.getIfPresent(fhirId);
+        }
+
+        synchronized void put(Long localId, String fhirId) {
+            String previousFhirId = fhirIds.asMap().put(localId, fhirId);
+            if (previousFhirId != null && !previousFhirId.equals(fhirId)) {
+                localIds.asMap().remove(previousFhirId, localId);
+            }
+            Long previousLocalId = localIds.asMap().put(fhirId, localId);
+            if (previousLocalId != null && !previousLocalId.equals(localId)) {
+                fhirIds.asMap().remove(previousLocalId, fhirId);
+            }
+        }
+
+        synchronized void remove(Long localId) {
+            String fhirId = fhirIds.asMap().remove(localId);
+            if (fhirId != null) {
+                localIds.asMap().remove(fhirId, localId);
+            }
+        }
+
+        long size() {
+            return fhirIds.estimatedSize();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.journalsystem.service;
+
+import ca.uhn.fhir.context.FhirContext;
+import com.journalsystem.model.FhirOutboxEntry;
+import com.journalsystem.repository.FhirOutboxRepository;
+import com.journalsystem.service.fhir.FhirBatchWriter;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Property;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transactional outbox for FHIR replication. Services record their FHIR writes here
+ * in the same transaction as the local save, and a background dispatcher sends them
+ * to the FHIR server in batches, retrying failures with exponential backoff.
+ * Writes for the same resource are always sent in the order they were recorded.
+ * Creates are conditional on an identifier carrying the local ID, so a create that is
+ * retried after a timeout finds the resource it already made instead of duplicating it.
+ * Updates and deletes of a resource with no recorded FHIR ID select it by that identifier
+ * too, never by guessing that its FHIR ID is the local ID.
+ * A dispatcher claims its batch by locking the rows just long enough to lease them,
+ * so several application nodes can dispatch at once without sending an entry twice,
+ * and no lock or connection is held while the FHIR server is being called.
+ */
+@Service
+public class FhirOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FhirOutboxService.class);
+
+    // Identifier system under which replicated resources carry their local ID
+    private static final String LOCAL_ID_SYSTEM = "urn:journalsystem:local-id";
+
+    @Autowired
+    private FhirOutboxRepository outboxRepository;
+
+    @Autowired
+    private FhirBatchWriter fhirBatchWriter;
+
+    @Autowired
+    private FhirContext fhirContext;
+
+    @Autowired
+    private FhirIdMappingService fhirIdMappingService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${fhir.enabled:false}")
+    private boolean fhirEnabled;
+
+    @Value("${fhir.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${fhir.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${fhir.outbox.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${fhir.outbox.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    // How long a claimed batch is left to its dispatcher before another node may retry it
+    @Value("${fhir.outbox.claim-timeout-ms:300000}")
+    private long claimTimeoutMs;
+
+    private final AtomicLong replicated = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private volatile LocalDateTime lastDispatchAt;
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    public void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueCreate(Long localId, Resource resource) {
+        enqueue(FhirOutboxEntry.Operation.CREATE, resource.fhirType(), localId, resource);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueUpdate(Long localId, Resource resource) {
+        enqueue(FhirOutboxEntry.Operation.UPDATE, resource.fhirType(), localId, resource);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueDelete(String resourceType, Long localId) {
+        enqueue(FhirOutboxEntry.Operation.DELETE, resourceType, localId, null);
+    }
+
+    /**
+     * Send the next batch of due outbox entries to the FHIR server, in three steps:
+     * claim the batch in a short transaction, send it outside any transaction, then
+     * record the outcomes in a second transaction.
+     */
+    @Scheduled(fixedDelayString = "${fhir.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        if (!fhirEnabled) {
+            return;
+        }
+        lastDispatchAt = LocalDateTime.now();
+
+        List<FhirOutboxEntry> batch = transaction.execute(status -> claim());
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+
+        // An entry whose payload cannot be turned into a write fails on its own
+        List<FhirOutboxEntry> toSend = new ArrayList<>();
+        List<FhirBatchWriter.Write> writes = new ArrayList<>();
+        List<FhirOutboxEntry> failed = new ArrayList<>();
+        for (FhirOutboxEntry entry : batch) {
+            try {
+                writes.add(toWrite(entry));
+                toSend.add(entry);
+            } catch (Exception e) {
+                logger.warn("Cannot build FHIR {} of {}/{}: {}", entry.getOperation(),
+                        entry.getResourceType(), entry.getResourceId(), e.getMessage());
+                recordFailure(entry, e.getMessage());
+                failed.add(entry);
+            }
+        }
+
+        List<FhirBatchWriter.WriteResult> results = writes.isEmpty() ? List.of() : fhirBatchWriter.writeAll(writes);
+        List<FhirOutboxEntry> sent = new ArrayList<>();
+        for (int i = 0; i < toSend.size(); i++) {
+            FhirBatchWriter.WriteResult result = results.get(i);
+            if (result.isSuccess()) {
+                recordMapping(toSend.get(i), result);
+                sent.add(toSend.get(i));
+            } else {
+                recordFailure(toSend.get(i), result.getError());
+                failed.add(toSend.get(i));
+            }
+        }
+
+        transaction.executeWithoutResult(status -> {
+            outboxRepository.deleteAll(sent);
+            outboxRepository.saveAll(failed);
+        });
+        replicated.addAndGet(sent.size());
+    }
+
+    /**
+     * Queue depth, replication lag and dispatcher counters
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("pending", outboxRepository.countByStatus(FhirOutboxEntry.Status.PENDING));
+        statistics.put("failed", outboxRepository.countByStatus(FhirOutboxEntry.Status.FAILED));
+        statistics.put("lagSeconds", outboxRepository.findFirstByStatusOrderByIdAsc(FhirOutboxEntry.Status.PENDING)
+                .map(oldest -> Duration.between(oldest.getCreatedAt(), LocalDateTime.now()).toSeconds())
+                .orElse(0L));
+        statistics.put("replicated", replicated.get());
+        statistics.put("failedAttempts", failedAttempts.get());
+        statistics.put("lastDispatchAt", lastDispatchAt);
+        return statistics;
+    }
+
+    private void enqueue(FhirOutboxEntry.Operation operation, String resourceType, Long localId, Resource resource) {
+        FhirOutboxEntry entry = new FhirOutboxEntry();
+        entry.setOperation(operation);
+        entry.setResourceType(resourceType);
+        entry.setResourceId(localId.toString());
+        if (resource != null) {
+            entry.setPayload(fhirContext.newJsonParser().encodeResourceToString(resource));
+        }
+        outboxRepository.save(entry);
+    }
+
+    private List<FhirOutboxEntry> claim() {
+        // Leasing the rows keeps other dispatchers off them once the locks are released
+        LocalDateTime now = LocalDateTime.now();
+        List<FhirOutboxEntry> batch = outboxRepository.claimDue(now, batchSize);
+        batch.forEach(entry -> entry.setNextAttemptAt(now.plusNanos(claimTimeoutMs * 1_000_000)));
+        return outboxRepository.saveAll(batch);
+    }
+
+    private FhirBatchWriter.Write toWrite(FhirOutboxEntry entry) {
+        // Updates and deletes address the resource by the ID the FHIR server gave it, or by
+        // the local ID identifier when none is recorded; on a shared server the local ID may
+        // well be some other resource's FHIR ID
+        Optional<String> fhirId = fhirIdMappingService.getFhirId(entry.getResourceType(), Long.valueOf(entry.getResourceId()));
+        String byLocalId = "identifier=" + LOCAL_ID_SYSTEM + "|" + entry.getResourceId();
+        if (entry.getOperation() == FhirOutboxEntry.Operation.DELETE) {
+            return fhirId.map(id -> FhirBatchWriter.Write.delete(entry.getResourceType(), id))
+                    .orElseGet(() -> FhirBatchWriter.Write.deleteWhere(entry.getResourceType(), byLocalId));
+        }
+        Resource resource = (Resource) fhirContext.newJsonParser().parseResource(entry.getPayload());
+        addLocalIdentifier(resource, entry.getResourceId());
+        if (entry.getOperation() == FhirOutboxEntry.Operation.CREATE) {
+            return FhirBatchWriter.Write.createIfNoneExist(resource, byLocalId);
+        }
+        if (fhirId.isPresent()) {
+            resource.setId(fhirId.get());
+            return FhirBatchWriter.Write.update(resource);
+        }
+        // The server resolves the ID; a body ID that differs from the match would be rejected
+        resource.setId((String) null);
+        return FhirBatchWriter.Write.updateWhere(resource, byLocalId);
+    }
+
+    private void addLocalIdentifier(Resource resource, String localId) {
+        // Updates carry it too, since a PUT replaces the identifiers the create stored
+        Property identifiers = resource.getNamedProperty("identifier");
+        if (identifiers == null) {
+            throw new IllegalArgumentException(resource.fhirType() + " has no identifier to create it idempotently");
+        }
+        boolean present = identifiers.getValues().stream()
+                .map(Identifier.class::cast)
+                .anyMatch(identifier -> LOCAL_ID_SYSTEM.equals(identifier.getSystem()));
+        if (!present) {
+            resource.setProperty("identifier", new Identifier().setSystem(LOCAL_ID_SYSTEM).setValue(localId));
+        }
+    }
+
+    private void recordMapping(FhirOutboxEntry entry, FhirBatchWriter.WriteResult result) {
+        Long localId = Long.valueOf(entry.getResourceId());
+        try {
+            // ID mappings commit on their own, so a mapping conflict cannot undo the batch's outcome
+            if (entry.getOperation() == FhirOutboxEntry.Operation.DELETE) {
+                fhirIdMappingService.unmap(entry.getResourceType(), localId);
+            } else if (result.getId() != null) {
+                fhirIdMappingService.map(entry.getResourceType(), localId, result.getId());
+            }
+        } catch (DataAccessException e) {
+            // The write itself succeeded; another node recorded a conflicting mapping at the same time
+            logger.warn("Could not record FHIR ID mapping for {}/{}: {}", entry.getResourceType(), localId, e.getMessage());
+        }
+    }
+
+    private void recordFailure(FhirOutboxEntry entry, String error) {
+        failedAttempts.incrementAndGet();
+        entry.setAttempts(entry.getAttempts() + 1);
+        entry.setLastError(error != null && error.length() > 2000 ? error.substring(0, 2000) : error);
+        if (entry.getAttempts() >= maxAttempts) {
+            logger.error("Giving up on FHIR {} of {}/{} after {} attempts", entry.getOperation(),
+                    entry.getResourceType(), entry.getResourceId(), entry.getAttempts());
+            entry.setStatus(FhirOutboxEntry.Status.FAILED);
+            return;
+        }
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(entry.getAttempts() - 1, 20));
+        entry.setNextAttemptAt(LocalDateTime.now().plusNanos(backoff * 1_000_000));
+    }
+}
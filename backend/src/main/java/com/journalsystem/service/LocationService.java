@@ -9,6 +9,7 @@ import com.journalsystem.converter.LocationFhirConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -25,6 +26,15 @@ public class LocationService {
     @Autowired
     private LocationFhirService locationFhirService;
     
+    @Autowired
+    private FhirOutboxService fhirOutboxService;
+
+    @Autowired
+    private FhirIdMappingService fhirIdMappingService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+    
     @Autowired
     private LocationFhirConverter locationFhirConverter;
     
@@ -45,12 +55,12 @@ public class LocationService {
     public Location getLocationById(Long id) {
         if (fhirEnabled) {
             // Try FHIR first
-            return locationFhirService.getLocationById(id.toString())
+            return locationFhirService.getLocationById(fhirIdMappingService.resolveFhirId("Location", id))
                     .map(locationFhirConverter::fromFhir)
-                    .orElseGet(() -> locationRepository.findById(id)
+                    .orElseGet(() -> locationRepository.findWithAssociationsById(id)
                             .orElseThrow(() -> new RuntimeException("Location not found")));
         }
-        return locationRepository.findById(id)
+        return locationRepository.findWithAssociationsById(id)
                 .orElseThrow(() -> new RuntimeException("Location not found"));
     }
 
@@ -58,7 +68,7 @@ public class LocationService {
         if (fhirEnabled) {
             // Get locations from FHIR server by organization
             List<org.hl7.fhir.r4.model.Location> fhirLocations = 
-                    locationFhirService.getLocationsByOrganization(organizationId.toString());
+                    locationFhirService.getLocationsByOrganization(fhirIdMappingService.resolveFhirId("Organization", organizationId));
             return fhirLocations.stream()
                     .map(fhirLocation -> {
                         Location location = locationFhirConverter.fromFhir(fhirLocation);
@@ -76,19 +86,21 @@ public class LocationService {
         return locationRepository.findByOrganization(organization);
     }
 
+    @Transactional
     public Location createLocation(Location location) {
         // Save locally first
         Location savedLocation = locationRepository.save(location);
         
-        // If FHIR is enabled, also create in FHIR server
+        // If FHIR is enabled, also create in FHIR server (replicated through the outbox)
         if (fhirEnabled) {
             org.hl7.fhir.r4.model.Location fhirLocation = locationFhirConverter.toFhir(savedLocation);
-            locationFhirService.createLocation(fhirLocation);
+            fhirOutboxService.enqueueCreate(savedLocation.getId(), fhirLocation);
         }
         
         return savedLocation;
     }
 
+    @Transactional
     public Location updateLocation(Long id, Location locationDetails) {
         Location location = getLocationById(id);
 
@@ -113,22 +125,25 @@ public class LocationService {
 
         // Save locally first
         Location savedLocation = locationRepository.save(location);
+        referenceDataCache.evict(Location.class, id);
         
-        // If FHIR is enabled, also update in FHIR server
+        // If FHIR is enabled, also update in FHIR server (replicated through the outbox)
         if (fhirEnabled) {
             org.hl7.fhir.r4.model.Location fhirLocation = locationFhirConverter.toFhir(savedLocation);
-            locationFhirService.updateLocation(fhirLocation);
+            fhirOutboxService.enqueueUpdate(savedLocation.getId(), fhirLocation);
         }
         
         return savedLocation;
     }
 
+    @Transactional
     public void deleteLocation(Long id) {
-        // Delete from FHIR if enabled
+        // Delete from FHIR if enabled (replicated through the outbox)
         if (fhirEnabled) {
-            locationFhirService.deleteLocation(id.toString());
+            fhirOutboxService.enqueueDelete("Location", id);
         }
         // Always delete locally
         locationRepository.deleteById(id);
+        referenceDataCache.evict(Location.class, id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.journalsystem.service;
+
+import com.journalsystem.dto.MessageHeader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * In-process fan-out of new messages to the receivers' open event streams. Streams are
+ * async requests, so an idle one holds a socket but no thread; a periodic heartbeat
+ * finds clients that went away without closing the connection. Sends and heartbeats run
+ * on the hub's own threads, so a slow client never holds up a request or another
+ * scheduled task.
+ */
+@Component
+public class MessageEventHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageEventHub.class);
+
+    private final Map<Long, Set<SseEmitter>> emittersByUser = new ConcurrentHashMap<>();
+
+    @Value("${message-stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${message-stream.heartbeat-interval-ms:25000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${message-stream.threads:2}")
+    private int threads;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "message-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::heartbeat, heartbeatIntervalMs, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Open a stream for the user. The browser reconnects by itself when it times out.
+     */
+    public SseEmitter subscribe(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emittersByUser.computeIfAbsent(userId, id -> new CopyOnWriteArraySet<>()).add(emitter);
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(() -> remove(userId, emitter));
+        emitter.onError(e -> remove(userId, emitter));
+        return emitter;
+    }
+
+    /**
+     * Push a message to the user's open streams in the background. The message is only
+     * loaded when the user has a stream open.
+     */
+    public void publish(Long userId, Supplier<Optional<MessageHeader>> message) {
+        if (!emittersByUser.containsKey(userId)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                message.get().ifPresent(header -> {
+                    for (SseEmitter emitter : emittersByUser.getOrDefault(userId, Set.of())) {
+                        send(userId, emitter, SseEmitter.event().name("message").id(String.valueOf(header.id())).data(header));
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.warn("Could not push message to user {}: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    private void heartbeat() {
+        emittersByUser.forEach((userId, emitters) -> {
+            for (SseEmitter emitter : emitters) {
+                send(userId, emitter, SseEmitter.event().comment("heartbeat"));
+            }
+        });
+    }
+
+    private void send(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // Client is gone; completing the emitter releases the async request
+            logger.debug("Dropping message stream of user {}: {}", userId, e.getMessage());
+            remove(userId, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        emittersByUser.computeIfPresent(userId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
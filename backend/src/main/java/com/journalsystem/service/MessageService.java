@@ -1,11 +1,25 @@
 package com.journalsystem.service;
 
+import com.journalsystem.dto.DeltaPage;
+import com.journalsystem.dto.KeysetPage;
+import com.journalsystem.dto.MarkReadRequest;
+import com.journalsystem.dto.MessageHeader;
+import com.journalsystem.dto.MessageThreadNode;
 import com.journalsystem.model.Message;
 import com.journalsystem.model.User;
 import com.journalsystem.repository.MessageRepository;
+import com.journalsystem.repository.UnreadCountRepository;
 import com.journalsystem.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -19,56 +33,246 @@ public class MessageService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private DeltaSyncService deltaSyncService;
+
+    @Autowired
+    private UnreadCountRepository unreadCountRepository;
+
+    @Autowired
+    private MessageEventHub messageEventHub;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${message.mark-read.max-ids:500}")
+    private int markReadMaxIds;
+
+    @Transactional(readOnly = true)
     public List<Message> getAllMessages() {
         return messageRepository.findAll();
     }
 
-    public Message getMessageById(Long id) {
-        return messageRepository.findById(id)
+    /**
+     * A message with its body. Returned as a header rather than the entity, so serializing it
+     * never walks the lazy parent chain after the transaction has closed.
+     */
+    @Transactional(readOnly = true)
+    public MessageHeader getMessageById(Long id) {
+        return messageRepository.findHeaderWithContentById(id)
                 .orElseThrow(() -> new RuntimeException("Message not found"));
     }
 
-    public List<Message> getMessagesByUserId(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        return messageRepository.findBySenderOrReceiverOrderBySentAtDesc(user, user);
+    @Transactional(readOnly = true)
+    public List<MessageHeader> getMessagesByUserId(Long userId) {
+        requireUser(userId);
+        return messageRepository.findHeadersByUser(userId);
     }
 
-    public List<Message> getReceivedMessages(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        return messageRepository.findByReceiverOrderBySentAtDesc(user);
+    @Transactional(readOnly = true)
+    public List<MessageHeader> getReceivedMessages(Long userId) {
+        requireUser(userId);
+        return messageRepository.findHeadersReceivedBy(userId);
     }
 
-    public List<Message> getSentMessages(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        return messageRepository.findBySenderOrderBySentAtDesc(user);
+    @Transactional(readOnly = true)
+    public List<MessageHeader> getSentMessages(Long userId) {
+        requireUser(userId);
+        return messageRepository.findHeadersSentBy(userId);
+    }
+
+    /**
+     * One page of the caller's inbox, newest first, starting after the given cursor. Rows carry
+     * no message body; it is loaded with getMessageById when the message is opened. The user
+     * in the path must be the caller.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<MessageHeader> getReceivedMessagesPage(String username, Long userId, String after, Integer limit) {
+        requireCaller(username, userId);
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<MessageHeader> rows = after == null
+                ? messageRepository.findInboxHeaders(userId, Limit.of(pageSize + 1))
+                : messageRepository.findInboxHeadersBefore(userId,
+                        KeysetPage.cursorTimestamp(after), KeysetPage.cursorId(after), Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, message -> KeysetPage.encodeCursor(message.sentAt(), message.id()));
+    }
+
+    /**
+     * One page of the caller's sent messages, newest first, without message bodies
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<MessageHeader> getSentMessagesPage(String username, Long userId, String after, Integer limit) {
+        requireCaller(username, userId);
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<MessageHeader> rows = after == null
+                ? messageRepository.findOutboxHeaders(userId, Limit.of(pageSize + 1))
+                : messageRepository.findOutboxHeadersBefore(userId,
+                        KeysetPage.cursorTimestamp(after), KeysetPage.cursorId(after), Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, message -> KeysetPage.encodeCursor(message.sentAt(), message.id()));
+    }
+
+    @Transactional(readOnly = true)
+    public List<MessageHeader> getUnreadMessages(Long userId) {
+        requireUser(userId);
+        return messageRepository.findUnreadHeadersReceivedBy(userId);
+    }
+
+    /**
+     * The caller's sent and received messages created or updated since the given high-water
+     * mark, and the IDs of deleted messages. The user in the path must be the caller.
+     */
+    @Transactional(readOnly = true)
+    public DeltaPage<MessageHeader> getMessagesChangedSince(String username, Long userId, LocalDateTime since) {
+        requireCaller(username, userId);
+        return deltaSyncService.messageChangesSince(userId, since,
+                changedSince -> messageRepository.findHeadersByUserUpdatedSince(userId, changedSince));
     }
 
-    public List<Message> getUnreadMessages(Long userId) {
-        User user = userRepository.findById(userId)
+    /**
+     * Number of unread messages the user has received. Read outside a read-only transaction,
+     * so it comes from the primary and reflects the user's own markAsRead straight away.
+     */
+    public long getUnreadCount(String username) {
+        User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return messageRepository.findByReceiverAndIsReadFalse(user);
+        return unreadCountRepository.findUnreadCountByUserId(user.getId()).orElse(0L);
     }
 
+    @Transactional
     public Message createMessage(Message message) {
-        return messageRepository.save(message);
+        Message saved = messageRepository.save(message);
+        if (!Boolean.TRUE.equals(saved.getIsRead()) && saved.getReceiver() != null) {
+            incrementUnreadCount(saved.getReceiver().getId());
+        }
+        if (saved.getReceiver() != null) {
+            publishAfterCommit(saved.getId(), saved.getReceiver().getId());
+        }
+        return saved;
     }
 
-    public Message markAsRead(Long id) {
-        Message message = getMessageById(id);
-        message.setIsRead(true);
-        message.setReadAt(LocalDateTime.now());
-        return messageRepository.save(message);
+    /**
+     * Event stream of messages the user receives from now on. The lookup runs in its own
+     * transaction so no database connection stays attached to the long-lived request.
+     */
+    @Transactional(readOnly = true)
+    public SseEmitter openStream(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return messageEventHub.subscribe(user.getId());
     }
 
+    @Transactional
+    public MessageHeader markAsRead(Long id) {
+        // Conditional update: of two concurrent calls only one flips the flag and decrements
+        boolean wasUnread = messageRepository.markReadIfUnread(id, LocalDateTime.now()) == 1;
+        MessageHeader message = getMessageById(id);
+        if (wasUnread) {
+            unreadCountRepository.decrement(message.receiver().id(), 1);
+        }
+        return message;
+    }
+
+    /**
+     * Mark the caller's received messages as read in one UPDATE, either the given IDs or all
+     * sent before the given time. The receiver is the authenticated user; a receiverId in the
+     * request must match it. Messages of other receivers are left alone. Returns how many
+     * messages changed from unread to read.
+     */
+    @Transactional
+    public int markAsRead(String username, MarkReadRequest request) {
+        User receiver = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        Long receiverId = receiver.getId();
+        if (request.getReceiverId() != null && !request.getReceiverId().equals(receiverId)) {
+            throw new IllegalArgumentException("receiverId must be the authenticated user");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        int updated;
+        if (request.getIds() != null && !request.getIds().isEmpty()) {
+            if (request.getIds().size() > markReadMaxIds) {
+                throw new IllegalArgumentException("At most " + markReadMaxIds + " ids per request");
+            }
+            updated = messageRepository.markReadByIds(receiverId, request.getIds(), now);
+        } else if (request.getBefore() != null) {
+            updated = messageRepository.markReadSentBefore(receiverId, request.getBefore(), now);
+        } else {
+            throw new IllegalArgumentException("Either ids or before is required");
+        }
+        // Only rows that were unread are counted, so the counter moves by exactly what changed
+        if (updated > 0) {
+            unreadCountRepository.decrement(receiverId, updated);
+        }
+        return updated;
+    }
+
+    @Transactional
     public void deleteMessage(Long id) {
-        messageRepository.deleteById(id);
+        messageRepository.findByIdForUpdate(id).ifPresent(message -> {
+            if (!Boolean.TRUE.equals(message.getIsRead())) {
+                unreadCountRepository.decrement(message.getReceiver().getId(), 1);
+            }
+            messageRepository.delete(message);
+            deltaSyncService.recordMessageDeletion(id, message.getSender().getId(), message.getReceiver().getId());
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public List<MessageHeader> getReplies(Long parentMessageId) {
+        if (!messageRepository.existsById(parentMessageId)) {
+            throw new RuntimeException("Message not found");
+        }
+        return messageRepository.findHeadersByParentMessageId(parentMessageId);
+    }
+
+    /**
+     * The whole thread the message belongs to, in one query: root first, each reply right
+     * after its parent. Only a sender or receiver of some message in the thread may read it;
+     * to anyone else it does not exist.
+     */
+    @Transactional(readOnly = true)
+    public List<MessageThreadNode> getThread(String username, Long id) {
+        List<MessageThreadNode> thread = entityManager.createNamedQuery("Message.findThread", MessageThreadNode.class)
+                .setParameter("id", id)
+                .getResultList();
+        boolean participant = thread.stream().anyMatch(node ->
+                username.equals(node.sender().username()) || username.equals(node.receiver().username()));
+        if (!participant) {
+            throw new RuntimeException("Message not found");
+        }
+        return thread;
+    }
+
+    // Only committed messages are pushed; the header is read back so the event carries the user names
+    private void publishAfterCommit(Long messageId, Long receiverId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                messageEventHub.publish(receiverId, () -> messageRepository.findHeaderById(messageId));
+            }
+        });
+    }
+
+    private void incrementUnreadCount(Long userId) {
+        // The receiver's first message creates the counter row; a concurrent send creating it
+        // too is a no-op, and the retried UPDATE then finds the committed row
+        if (unreadCountRepository.increment(userId) == 0) {
+            unreadCountRepository.createIfMissing(userId);
+            unreadCountRepository.increment(userId);
+        }
+    }
+
+    // Endpoints that take the user from the path serve only the authenticated user's own messages
+    private void requireCaller(String username, Long userId) {
+        User caller = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (!caller.getId().equals(userId)) {
+            throw new IllegalArgumentException("userId must be the authenticated user");
+        }
     }
 
-    public List<Message> getReplies(Long parentMessageId) {
-        Message parentMessage = getMessageById(parentMessageId);
-        return messageRepository.findByParentMessage(parentMessage);
+    private void requireUser(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
     }
 }
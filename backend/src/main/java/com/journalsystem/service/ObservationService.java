@@ -1,19 +1,28 @@
 package com.journalsystem.service;
 
+import com.journalsystem.dto.DeltaPage;
+import com.journalsystem.dto.KeysetPage;
+import com.journalsystem.dto.ObservationRow;
 import com.journalsystem.model.Observation;
 import com.journalsystem.model.Patient;
 import com.journalsystem.repository.ObservationRepository;
 import com.journalsystem.repository.PatientRepository;
 import com.journalsystem.service.fhir.ObservationFhirService;
+import com.journalsystem.service.fhir.PatientFhirService;
 import com.journalsystem.converter.ObservationFhirConverter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ObservationService {
@@ -27,6 +36,9 @@ public class ObservationService {
     @Autowired
     private ObservationFhirService observationFhirService;
     
+    @Autowired
+    private PatientFhirService patientFhirService;
+    
     @Autowired
     private ObservationFhirConverter observationFhirConverter;
     
@@ -34,44 +46,62 @@ public class ObservationService {
     private boolean fhirEnabled;
     
     @Autowired
-    private PatientService patientService;
+    private FhirIdMappingService fhirIdMappingService;
+
+    @Autowired
+    private DeltaSyncService deltaSyncService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Transactional(readOnly = true)
+    public List<ObservationRow> getAllObservations() {
+        return observationRepository.findAllRows();
+    }
+
+    /**
+     * One page of all observations in ID order, starting after the given ID
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<ObservationRow> getObservationsPage(Long after, Integer limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<ObservationRow> rows = observationRepository.findRowsAfter(after != null ? after : 0L, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, observation -> observation.id().toString());
+    }
 
-    public List<Observation> getAllObservations() {
-        return observationRepository.findAll();
+    /**
+     * Observations created or updated since the given high-water mark, and the IDs of deleted ones
+     */
+    @Transactional(readOnly = true)
+    public DeltaPage<ObservationRow> getObservationsChangedSince(LocalDateTime since) {
+        return deltaSyncService.changesSince("Observation", since, observationRepository::findRowsUpdatedSince);
     }
 
+    @Transactional(readOnly = true)
     public Observation getObservationById(Long id) {
         return observationRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Observation not found"));
     }
 
-    public List<Observation> getObservationsByPatientId(Long patientId) {
+    public List<ObservationRow> getObservationsByPatientId(Long patientId) {
         // First try local database
-        Optional<Patient> localPatient = patientRepository.findById(patientId);
-        if (localPatient.isPresent()) {
-            return observationRepository.findByPatientOrderByObservationDateDesc(localPatient.get());
+        if (patientRepository.existsById(patientId)) {
+            return observationRepository.findRowsByPatientId(patientId);
         }
         
         // If not found locally and FHIR is enabled, try FHIR
         if (fhirEnabled) {
-            // Get the actual FHIR ID for this local ID
-            String fhirId = patientService.getFhirIdForLocalId(patientId);
-            if (fhirId == null) {
-                // If no mapping found, try using the ID as-is
-                fhirId = patientId.toString();
-            }
+            // Get the actual FHIR ID for this local ID (the ID itself if there is no mapping)
+            String fhirId = fhirIdMappingService.resolveFhirId("Patient", patientId);
             
+            // One shared patient record, fetched with concurrent requests for the rest of the chart
             List<org.hl7.fhir.r4.model.Observation> fhirObservations = 
-                    observationFhirService.getObservationsByPatient(fhirId);
+                    patientFhirService.getPatientRecord(fhirId).getObservations();
             return fhirObservations.stream()
-                    .map(fhirObservation -> {
-                        Observation localObservation = observationFhirConverter.fromFhir(fhirObservation);
-                        // Set a dummy patient with just the ID for reference
-                        Patient patient = new Patient();
-                        patient.setId(patientId);
-                        localObservation.setPatient(patient);
-                        return localObservation;
-                    })
+                    .map(fhirObservation -> fromFhir(fhirObservation, patientId))
                     .collect(Collectors.toList());
         }
         
@@ -79,10 +109,75 @@ public class ObservationService {
         return new ArrayList<>();
     }
 
+    /**
+     * Stream a patient's observations. For patients that only exist on the FHIR server, pages are
+     * pulled as the stream is consumed, so only one page is held in memory at a time.
+     * The caller must close the stream.
+     */
+    public Stream<ObservationRow> streamObservationsByPatientId(Long patientId) {
+        if (patientRepository.existsById(patientId)) {
+            return observationRepository.findRowsByPatientId(patientId).stream();
+        }
+
+        if (fhirEnabled) {
+            String fhirId = fhirIdMappingService.resolveFhirId("Patient", patientId);
+            return observationFhirService.streamObservationsByPatient(fhirId)
+                    .map(fhirObservation -> fromFhir(fhirObservation, patientId));
+        }
+        return Stream.empty();
+    }
+
+    private ObservationRow fromFhir(org.hl7.fhir.r4.model.Observation fhirObservation, Long patientId) {
+        Observation localObservation = observationFhirConverter.fromFhir(fhirObservation);
+        // Set a dummy patient with just the ID for reference
+        Patient patient = new Patient();
+        patient.setId(patientId);
+        localObservation.setPatient(patient);
+        return ObservationRow.from(localObservation);
+    }
+
+    /**
+     * One page of a patient's observations, newest first, starting after the given cursor.
+     * For patients that only exist on the FHIR server the page comes from a sorted FHIR
+     * search, and the cursor carries the server's link to the next page.
+     */
+    public KeysetPage<ObservationRow> getObservationsPageByPatientId(Long patientId, String after, Integer limit) {
+        if (!patientRepository.existsById(patientId)) {
+            if (!fhirEnabled) {
+                return new KeysetPage<>(new ArrayList<>(), null);
+            }
+            String fhirId = fhirIdMappingService.resolveFhirId("Patient", patientId);
+            return observationFhirService.getObservationsPageByPatient(fhirId, after, KeysetPage.clampLimit(limit))
+                    .map(fhirObservation -> fromFhir(fhirObservation, patientId));
+        }
+
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<ObservationRow> rows = after == null
+                ? observationRepository.findRowsByPatientId(patientId, Limit.of(pageSize + 1))
+                : observationRepository.findRowsByPatientIdBefore(patientId,
+                        KeysetPage.cursorTimestamp(after), KeysetPage.cursorId(after), Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, observation -> KeysetPage.encodeCursor(observation.observationDate(), observation.id()));
+    }
+
     public Observation createObservation(Observation observation) {
         return observationRepository.save(observation);
     }
 
+    /**
+     * Bulk insert, sent to the database in JDBC batches. The persistence context is
+     * cleared after every batch so memory stays flat however many rows are loaded.
+     */
+    @Transactional
+    public int createObservations(List<Observation> observations) {
+        for (int start = 0; start < observations.size(); start += batchSize) {
+            observationRepository.saveAll(observations.subList(start, Math.min(start + batchSize, observations.size())));
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return observations.size();
+    }
+
+    @Transactional
     public Observation updateObservation(Long id, Observation observationDetails) {
         Observation observation = getObservationById(id);
 
@@ -102,7 +197,9 @@ public class ObservationService {
         return observationRepository.save(observation);
     }
 
+    @Transactional
     public void deleteObservation(Long id) {
         observationRepository.deleteById(id);
+        deltaSyncService.recordDeletion("Observation", id);
     }
 }
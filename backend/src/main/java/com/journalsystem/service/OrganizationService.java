@@ -7,6 +7,7 @@ import com.journalsystem.converter.OrganizationFhirConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -20,6 +21,15 @@ public class OrganizationService {
     @Autowired
     private OrganizationFhirService organizationFhirService;
     
+    @Autowired
+    private FhirOutboxService fhirOutboxService;
+
+    @Autowired
+    private FhirIdMappingService fhirIdMappingService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+    
     @Autowired
     private OrganizationFhirConverter organizationFhirConverter;
     
@@ -40,7 +50,7 @@ public class OrganizationService {
     public Organization getOrganizationById(Long id) {
         if (fhirEnabled) {
             // Try FHIR first
-            return organizationFhirService.getOrganizationById(id.toString())
+            return organizationFhirService.getOrganizationById(fhirIdMappingService.resolveFhirId("Organization", id))
                     .map(organizationFhirConverter::fromFhir)
                     .orElseGet(() -> organizationRepository.findById(id)
                             .orElseThrow(() -> new RuntimeException("Organization not found")));
@@ -49,19 +59,21 @@ public class OrganizationService {
                 .orElseThrow(() -> new RuntimeException("Organization not found"));
     }
 
+    @Transactional
     public Organization createOrganization(Organization organization) {
         // Save locally first
         Organization savedOrg = organizationRepository.save(organization);
         
-        // If FHIR is enabled, also create in FHIR server
+        // If FHIR is enabled, also create in FHIR server (replicated through the outbox)
         if (fhirEnabled) {
             org.hl7.fhir.r4.model.Organization fhirOrg = organizationFhirConverter.toFhir(savedOrg);
-            organizationFhirService.createOrganization(fhirOrg);
+            fhirOutboxService.enqueueCreate(savedOrg.getId(), fhirOrg);
         }
         
         return savedOrg;
     }
 
+    @Transactional
     public Organization updateOrganization(Long id, Organization organizationDetails) {
         Organization organization = getOrganizationById(id);
 
@@ -83,22 +95,25 @@ public class OrganizationService {
 
         // Save locally first
         Organization savedOrg = organizationRepository.save(organization);
+        referenceDataCache.evict(Organization.class, id);
         
-        // If FHIR is enabled, also update in FHIR server
+        // If FHIR is enabled, also update in FHIR server (replicated through the outbox)
         if (fhirEnabled) {
             org.hl7.fhir.r4.model.Organization fhirOrg = organizationFhirConverter.toFhir(savedOrg);
-            organizationFhirService.updateOrganization(fhirOrg);
+            fhirOutboxService.enqueueUpdate(savedOrg.getId(), fhirOrg);
         }
         
         return savedOrg;
     }
 
+    @Transactional
     public void deleteOrganization(Long id) {
-        // Delete from FHIR if enabled
+        // Delete from FHIR if enabled (replicated through the outbox)
         if (fhirEnabled) {
-            organizationFhirService.deleteOrganization(id.toString());
+            fhirOutboxService.enqueueDelete("Organization", id);
         }
         // Always delete locally
         organizationRepository.deleteById(id);
+        referenceDataCache.evict(Organization.class, id);
     }
 }
\ No newline at end of file
@@ -1,24 +1,39 @@
 package com.journalsystem.service;
 
+import com.journalsystem.dto.DeltaPage;
+import com.journalsystem.dto.KeysetPage;
+import com.journalsystem.dto.PatientSummary;
 import com.journalsystem.model.Patient;
 import com.journalsystem.model.User;
 import com.journalsystem.repository.PatientRepository;
 import com.journalsystem.repository.UserRepository;
 import com.journalsystem.service.fhir.PatientFhirService;
 import com.journalsystem.converter.PatientFhirConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.Optional;
 
 @Service
 public class PatientService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PatientService.class);
+
+    // Personal numbers per IN (...) query when matching FHIR patients
+    private static final int MATCH_CHUNK_SIZE = 500;
+
     @Autowired
     private PatientRepository patientRepository;
 
@@ -28,51 +43,113 @@ public class PatientService {
     @Autowired
     private PatientFhirService patientFhirService;
     
+    @Autowired
+    private FhirOutboxService fhirOutboxService;
+    
     @Autowired
     private PatientFhirConverter patientFhirConverter;
     
-    @Value("${fhir.enabled:false}")
-    private boolean fhirEnabled;
+    @Autowired
+    private FhirIdMappingService fhirIdMappingService;
     
-    // Cache to map local IDs to FHIR IDs
-    private static final Map<Long, String> localIdToFhirIdMap = new HashMap<>();
+    @Autowired
+    private DeltaSyncService deltaSyncService;
     
-    public String getFhirIdForLocalId(Long localId) {
-        return localIdToFhirIdMap.get(localId);
-    }
+    @Value("${fhir.enabled:false}")
+    private boolean fhirEnabled;
 
     public List<Patient> getAllPatients() {
         if (fhirEnabled) {
-            // Get patients from FHIR server
-            List<org.hl7.fhir.r4.model.Patient> fhirPatients = patientFhirService.getAllPatients();
-            return fhirPatients.stream()
-                    .map(fhirPatient -> {
-                        Patient localPatient = patientFhirConverter.fromFhir(fhirPatient);
-                        
-                        // Store the mapping between local ID and FHIR ID
-                        if (localPatient.getId() != null && fhirPatient.hasIdElement()) {
-                            localIdToFhirIdMap.put(localPatient.getId(), fhirPatient.getIdElement().getIdPart());
-                        }
-                        
-                        // Try to match with local user by personal number
-                        if (localPatient.getPersonalNumber() != null) {
-                            patientRepository.findByPersonalNumber(localPatient.getPersonalNumber())
-                                    .ifPresent(existingPatient -> {
-                                        localPatient.setUser(existingPatient.getUser());
-                                        localPatient.setId(existingPatient.getId());
-                                    });
-                        }
-                        return localPatient;
-                    })
-                    .collect(Collectors.toList());
+            // Concurrent callers share one FHIR fetch
+            return toLocalPatients(patientFhirService.getAllPatients());
         }
         return patientRepository.findAll();
     }
 
+    /**
+     * One page of local patients in ID order, starting after the given ID.
+     * Paging always runs against the local table, which the outbox keeps in step with FHIR.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<PatientSummary> getPatientsPage(Long after, Integer limit) {
+        int pageSize = KeysetPage.clampLimit(limit);
+        List<PatientSummary> rows = patientRepository.findSummariesAfter(after != null ? after : 0L, Limit.of(pageSize + 1));
+        return KeysetPage.of(rows, pageSize, patient -> patient.id().toString());
+    }
+
+    /**
+     * Local patients created or updated since the given high-water mark, and the IDs of deleted ones
+     */
+    @Transactional(readOnly = true)
+    public DeltaPage<PatientSummary> getPatientsChangedSince(LocalDateTime since) {
+        return deltaSyncService.changesSince("Patient", since, patientRepository::findSummariesUpdatedSince);
+    }
+
+    /**
+     * Stream a summary of every patient. With FHIR enabled, pages are pulled from the FHIR server
+     * as the stream is consumed, so only one page is held in memory at a time.
+     * The caller must close the stream.
+     */
+    public Stream<PatientSummary> streamAllPatients() {
+        if (fhirEnabled) {
+            // Get patients from FHIR server, matched against local records a page at a time
+            return patientFhirService.streamAllPatientPages()
+                    .map(this::toLocalPatients)
+                    .flatMap(List::stream)
+                    .map(PatientSummary::from);
+        }
+        return patientRepository.findAllSummaries().stream();
+    }
+
+    /**
+     * Convert FHIR patients and match them with local patients by personal number,
+     * looking the personal numbers up in bulk rather than one query per patient
+     */
+    private List<Patient> toLocalPatients(List<org.hl7.fhir.r4.model.Patient> fhirPatients) {
+        List<Patient> localPatients = fhirPatients.stream()
+                .map(patientFhirConverter::fromFhir)
+                .collect(Collectors.toList());
+
+        List<String> personalNumbers = localPatients.stream()
+                .map(Patient::getPersonalNumber)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+
+        // Try to match with local user by personal number
+        Map<String, Patient> existingPatients = new HashMap<>();
+        for (int start = 0; start < personalNumbers.size(); start += MATCH_CHUNK_SIZE) {
+            List<String> chunk = personalNumbers.subList(start, Math.min(start + MATCH_CHUNK_SIZE, personalNumbers.size()));
+            patientRepository.findByPersonalNumberInWithUser(chunk)
+                    .forEach(existing -> existingPatients.put(existing.getPersonalNumber(), existing));
+        }
+
+        Map<Long, String> fhirIds = new HashMap<>();
+        for (int i = 0; i < localPatients.size(); i++) {
+            Patient localPatient = localPatients.get(i);
+            Patient existingPatient = existingPatients.get(localPatient.getPersonalNumber());
+            if (existingPatient != null) {
+                localPatient.setUser(existingPatient.getUser());
+                localPatient.setId(existingPatient.getId());
+            }
+            
+            // Collect the mappings between local ID and FHIR ID, stored together below
+            org.hl7.fhir.r4.model.Patient fhirPatient = fhirPatients.get(i);
+            if (localPatient.getId() != null && fhirPatient.getIdElement().hasIdPart()) {
+                fhirIds.put(localPatient.getId(), fhirPatient.getIdElement().getIdPart());
+            }
+        }
+        // Only mappings that are new or changed are written; repeated reads of the same patients write nothing
+        fhirIdMappingService.mapAll("Patient", fhirIds);
+
+        logger.debug("Matched {} of {} FHIR patients to local patients", existingPatients.size(), localPatients.size());
+        return localPatients;
+    }
+
     public Patient getPatientById(Long id) {
         if (fhirEnabled) {
             // Try FHIR first
-            Optional<org.hl7.fhir.r4.model.Patient> fhirPatient = patientFhirService.getPatientById(id.toString());
+            Optional<org.hl7.fhir.r4.model.Patient> fhirPatient = patientFhirService.getPatientById(fhirIdMappingService.resolveFhirId("Patient", id));
             if (fhirPatient.isPresent()) {
                 Patient localPatient = patientFhirConverter.fromFhir(fhirPatient.get());
                 // Get local patient for user association
@@ -87,11 +164,13 @@ public class PatientService {
                 .orElseThrow(() -> new RuntimeException("Patient not found"));
     }
 
+    @Transactional(readOnly = true)
     public Patient getPatientByUserId(Long userId) {
         return patientRepository.findByUserId(userId)
                 .orElseThrow(() -> new RuntimeException("Patient not found for user"));
     }
 
+    @Transactional
     public Patient updatePatient(Long id, Patient patientDetails) {
         Patient patient = getPatientById(id);
 
@@ -117,35 +196,38 @@ public class PatientService {
         // Save locally first
         Patient savedPatient = patientRepository.save(patient);
         
-        // If FHIR is enabled, also update in FHIR server
+        // If FHIR is enabled, also update in FHIR server (replicated through the outbox)
         if (fhirEnabled) {
             org.hl7.fhir.r4.model.Patient fhirPatient = patientFhirConverter.toFhir(savedPatient);
-            patientFhirService.updatePatient(fhirPatient);
+            fhirOutboxService.enqueueUpdate(savedPatient.getId(), fhirPatient);
         }
         
         return savedPatient;
     }
 
+    @Transactional
     public void deletePatient(Long id) {
-        // Delete from FHIR if enabled
+        // Delete from FHIR if enabled (replicated through the outbox)
         if (fhirEnabled) {
-            patientFhirService.deletePatient(id.toString());
+            fhirOutboxService.enqueueDelete("Patient", id);
         }
         // Always delete locally
         patientRepository.deleteById(id);
+        deltaSyncService.recordDeletion("Patient", id);
     }
     
     /**
      * Create a new patient - used during registration
      */
+    @Transactional
     public Patient createPatient(Patient patient) {
         // Save locally first
         Patient savedPatient = patientRepository.save(patient);
         
-        // If FHIR is enabled, also create in FHIR server
+        // If FHIR is enabled, also create in FHIR server (replicated through the outbox)
         if (fhirEnabled) {
             org.hl7.fhir.r4.model.Patient fhirPatient = patientFhirConverter.toFhir(savedPatient);
-            patientFhirService.createPatient(fhirPatient);
+            fhirOutboxService.enqueueCreate(savedPatient.getId(), fhirPatient);
         }
         
         return savedPatient;
@@ -4,6 +4,7 @@ import com.journalsystem.model.Practitioner;
 import com.journalsystem.repository.PractitionerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -13,12 +14,15 @@ public class PractitionerService {
     @Autowired
     private PractitionerRepository practitionerRepository;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
     public List<Practitioner> getAllPractitioners() {
         return practitionerRepository.findAll();
     }
 
     public Practitioner getPractitionerById(Long id) {
-        return practitionerRepository.findById(id)
+        return practitionerRepository.findWithAssociationsById(id)
                 .orElseThrow(() -> new RuntimeException("Practitioner not found"));
     }
 
@@ -27,6 +31,7 @@ public class PractitionerService {
                 .orElseThrow(() -> new RuntimeException("Practitioner not found for user"));
     }
 
+    @Transactional
     public Practitioner updatePractitioner(Long id, Practitioner practitionerDetails) {
         Practitioner practitioner = getPractitionerById(id);
 
@@ -40,10 +45,13 @@ public class PractitionerService {
             practitioner.setOrganization(practitionerDetails.getOrganization());
         }
 
-        return practitionerRepository.save(practitioner);
+        Practitioner savedPractitioner = practitionerRepository.save(practitioner);
+        referenceDataCache.evict(Practitioner.class, id);
+        return savedPractitioner;
     }
 
     public void deletePractitioner(Long id) {
         practitionerRepository.deleteById(id);
+        referenceDataCache.evict(Practitioner.class, id);
     }
 }
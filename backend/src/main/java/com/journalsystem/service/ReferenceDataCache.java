@@ -0,0 +1,87 @@
+package com.journalsystem.service;
+
+import com.journalsystem.config.SecondLevelCacheConfig;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Eviction and statistics for the second-level cache of organizations, locations and practitioners
+ */
+@Service
+public class ReferenceDataCache {
+
+    private static final List<String> ENTITY_REGIONS = List.of(
+            SecondLevelCacheConfig.ORGANIZATIONS_REGION,
+            SecondLevelCacheConfig.LOCATIONS_REGION,
+            SecondLevelCacheConfig.PRACTITIONERS_REGION);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Drop the cached entity and all cached reference data queries. Inside a transaction
+     * this happens after commit, so a concurrent reader cannot re-cache the old row.
+     */
+    public void evict(Class<?> entityType, Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(entityType, id);
+                }
+            });
+        } else {
+            evictNow(entityType, id);
+        }
+    }
+
+    /**
+     * Hit, miss and put counters per cache region
+     */
+    public Map<String, Object> getStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String region : ENTITY_REGIONS) {
+            regions.put(region, regionStatistics(statistics.getDomainDataRegionStatistics(region)));
+        }
+        regions.put(SecondLevelCacheConfig.REFERENCE_QUERIES_REGION,
+                regionStatistics(statistics.getQueryRegionStatistics(SecondLevelCacheConfig.REFERENCE_QUERIES_REGION)));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entityHits", statistics.getSecondLevelCacheHitCount());
+        result.put("entityMisses", statistics.getSecondLevelCacheMissCount());
+        result.put("queryHits", statistics.getQueryCacheHitCount());
+        result.put("queryMisses", statistics.getQueryCacheMissCount());
+        result.put("regions", regions);
+        return result;
+    }
+
+    private void evictNow(Class<?> entityType, Long id) {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictEntityData(entityType, id);
+        sessionFactory.getCache().evictQueryRegion(SecondLevelCacheConfig.REFERENCE_QUERIES_REGION);
+    }
+
+    private static Map<String, Object> regionStatistics(CacheRegionStatistics region) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (region == null) {
+            // Region not used yet
+            return result;
+        }
+        result.put("hits", region.getHitCount());
+        result.put("misses", region.getMissCount());
+        result.put("puts", region.getPutCount());
+        return result;
+    }
+}
@@ -1,15 +1,16 @@
 package com.journalsystem.service.fhir;
 
+import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
-import ca.uhn.fhir.util.BundleUtil;
+import com.journalsystem.dto.KeysetPage;
 import org.hl7.fhir.r4.model.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import ca.uhn.fhir.context.FhirContext;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class ConditionFhirService {
@@ -18,73 +19,101 @@ public class ConditionFhirService {
     private IGenericClient fhirClient;
     
     @Autowired
-    private FhirContext fhirContext;
+    private FhirResourceCache resourceCache;
+    
+    @Autowired
+    private FhirPagingEngine pagingEngine;
+    
+    @Autowired
+    private FhirRequestCoalescer coalescer;
     
     public Optional<Condition> getConditionById(String id) {
         try {
-            Condition condition = fhirClient
-                    .read()
-                    .resource(Condition.class)
-                    .withId(id)
-                    .execute();
-            return Optional.of(condition);
+            return Optional.of(resourceCache.read(Condition.class, id));
         } catch (Exception e) {
             return Optional.empty();
         }
     }
     
-    public List<Condition> getConditionsByPatient(String patientId) {
-        Bundle bundle = fhirClient
+    public PagedResults<Condition> getConditionsByPatient(String patientId) {
+        return coalescer.execute("Condition?patient=" + patientId,
+                () -> pagingEngine.fetchAll(() -> searchConditionsByPatient(patientId), Condition.class));
+    }
+    
+    /**
+     * Stream a patient's conditions, fetching the next page only as the caller gets to it.
+     * Not coalesced, as a stream cannot be shared. The caller must close the stream.
+     */
+    public Stream<Condition> streamConditionsByPatient(String patientId) {
+        return pagingEngine.stream(() -> searchConditionsByPatient(patientId), Condition.class);
+    }
+    
+    /**
+     * One page of a patient's conditions, newest first by onset date. Later pages are read from the
+     * server's next link carried in the cursor, so a deep page costs no more than the first.
+     */
+    public KeysetPage<Condition> getConditionsPageByPatient(String patientId, String after, int limit) {
+        return pagingEngine.fetchPage(() -> fhirClient
                 .search()
                 .forResource(Condition.class)
                 .where(Condition.PATIENT.hasId(patientId))
+                .sort().descending(Condition.ONSET_DATE)
                 .returnBundle(Bundle.class)
-                .execute();
-        
-        return BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                .map(entry -> (Condition) entry.getResource())
-                .collect(Collectors.toList());
+                .count(limit)
+                .execute(), after, Condition.class);
     }
     
-    public List<Condition> getConditionsByEncounter(String encounterId) {
-        Bundle bundle = fhirClient
+    private Bundle searchConditionsByPatient(String patientId) {
+        return fhirClient
                 .search()
                 .forResource(Condition.class)
-                .where(Condition.ENCOUNTER.hasId(encounterId))
+                .where(Condition.PATIENT.hasId(patientId))
                 .returnBundle(Bundle.class)
+                .count(pagingEngine.getPageSize())
                 .execute();
-        
-        return BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                .map(entry -> (Condition) entry.getResource())
-                .collect(Collectors.toList());
     }
     
-    public List<Condition> getAllConditions() {
-        Bundle bundle = fhirClient
+    public List<Condition> getConditionsByEncounter(String encounterId) {
+        Supplier<Bundle> search = () -> fhirClient
                 .search()
                 .forResource(Condition.class)
+                .where(Condition.ENCOUNTER.hasId(encounterId))
                 .returnBundle(Bundle.class)
+                .count(pagingEngine.getPageSize())
                 .execute();
         
-        return BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                .map(entry -> (Condition) entry.getResource())
-                .collect(Collectors.toList());
+        return pagingEngine.fetchAll(search, Condition.class);
+    }
+    
+    public List<Condition> getAllConditions() {
+        return coalescer.execute("Condition", () -> {
+            Supplier<Bundle> search = () -> fhirClient
+                    .search()
+                    .forResource(Condition.class)
+                    .returnBundle(Bundle.class)
+                    .count(pagingEngine.getPageSize())
+                    .execute();
+            
+            return pagingEngine.fetchAll(search, Condition.class);
+        });
     }
     
     public Condition createCondition(Condition condition) {
-        return (Condition) fhirClient
+        MethodOutcome outcome = fhirClient
                 .create()
                 .resource(condition)
-                .execute()
-                .getResource();
+                .execute();
+        resourceCache.refresh(condition, outcome);
+        return (Condition) outcome.getResource();
     }
     
     public Condition updateCondition(Condition condition) {
-        return (Condition) fhirClient
+        MethodOutcome outcome = fhirClient
                 .update()
                 .resource(condition)
-                .execute()
-                .getResource();
+                .execute();
+        resourceCache.refresh(condition, outcome);
+        return (Condition) outcome.getResource();
     }
     
     public void deleteCondition(String id) {
@@ -92,5 +121,6 @@ public class ConditionFhirService {
                 .delete()
                 .resourceById("Condition", id)
                 .execute();
+        resourceCache.invalidate("Condition", id);
     }
 }
\ No newline at end of file
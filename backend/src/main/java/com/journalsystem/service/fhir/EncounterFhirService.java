@@ -1,15 +1,16 @@
 package com.journalsystem.service.fhir;
 
+import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
-import ca.uhn.fhir.util.BundleUtil;
+import com.journalsystem.dto.KeysetPage;
 import org.hl7.fhir.r4.model.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import ca.uhn.fhir.context.FhirContext;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class EncounterFhirService {
@@ -18,73 +19,101 @@ public class EncounterFhirService {
     private IGenericClient fhirClient;
     
     @Autowired
-    private FhirContext fhirContext;
+    private FhirResourceCache resourceCache;
+    
+    @Autowired
+    private FhirPagingEngine pagingEngine;
+    
+    @Autowired
+    private FhirRequestCoalescer coalescer;
     
     public Optional<Encounter> getEncounterById(String id) {
         try {
-            Encounter encounter = fhirClient
-                    .read()
-                    .resource(Encounter.class)
-                    .withId(id)
-                    .execute();
-            return Optional.of(encounter);
+            return Optional.of(resourceCache.read(Encounter.class, id));
         } catch (Exception e) {
             return Optional.empty();
         }
     }
     
-    public List<Encounter> getEncountersByPatient(String patientId) {
-        Bundle bundle = fhirClient
+    public PagedResults<Encounter> getEncountersByPatient(String patientId) {
+        return coalescer.execute("Encounter?patient=" + patientId,
+                () -> pagingEngine.fetchAll(() -> searchEncountersByPatient(patientId), Encounter.class));
+    }
+    
+    /**
+     * Stream a patient's encounters, fetching the next page only as the caller gets to it.
+     * Not coalesced, as a stream cannot be shared. The caller must close the stream.
+     */
+    public Stream<Encounter> streamEncountersByPatient(String patientId) {
+        return pagingEngine.stream(() -> searchEncountersByPatient(patientId), Encounter.class);
+    }
+    
+    /**
+     * One page of a patient's encounters, newest first by date. Later pages are read from the
+     * server's next link carried in the cursor, so a deep page costs no more than the first.
+     */
+    public KeysetPage<Encounter> getEncountersPageByPatient(String patientId, String after, int limit) {
+        return pagingEngine.fetchPage(() -> fhirClient
                 .search()
                 .forResource(Encounter.class)
                 .where(Encounter.PATIENT.hasId(patientId))
+                .sort().descending(Encounter.DATE)
                 .returnBundle(Bundle.class)
-                .execute();
-        
-        return BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                .map(entry -> (Encounter) entry.getResource())
-                .collect(Collectors.toList());
+                .count(limit)
+                .execute(), after, Encounter.class);
     }
     
-    public List<Encounter> getEncountersByPractitioner(String practitionerId) {
-        Bundle bundle = fhirClient
+    private Bundle searchEncountersByPatient(String patientId) {
+        return fhirClient
                 .search()
                 .forResource(Encounter.class)
-                .where(Encounter.PARTICIPANT.hasId(practitionerId))
+                .where(Encounter.PATIENT.hasId(patientId))
                 .returnBundle(Bundle.class)
+                .count(pagingEngine.getPageSize())
                 .execute();
-        
-        return BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                .map(entry -> (Encounter) entry.getResource())
-                .collect(Collectors.toList());
     }
     
-    public List<Encounter> getAllEncounters() {
-        Bundle bundle = fhirClient
+    public List<Encounter> getEncountersByPractitioner(String practitionerId) {
+        Supplier<Bundle> search = () -> fhirClient
                 .search()
                 .forResource(Encounter.class)
+                .where(Encounter.PARTICIPANT.hasId(practitionerId))
                 .returnBundle(Bundle.class)
+                .count(pagingEngine.getPageSize())
                 .execute();
         
-        return BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                .map(entry -> (Encounter) entry.getResource())
-                .collect(Collectors.toList());
+        return pagingEngine.fetchAll(search, Encounter.class);
+    }
+    
+    public List<Encounter> getAllEncounters() {
+        return coalescer.execute("Encounter", () -> {
+            Supplier<Bundle> search = () -> fhirClient
+                    .search()
+                    .forResource(Encounter.class)
+                    .returnBundle(Bundle.class)
+                    .count(pagingEngine.getPageSize())
+                    .execute();
+            
+            return pagingEngine.fetchAll(search, Encounter.class);
+        });
     }
     
     public Encounter createEncounter(Encounter encounter) {
-        return (Encounter) fhirClient
+        MethodOutcome outcome = fhirClient
                 .create()
                 .resource(encounter)
-                .execute()
-                .getResource();
+                .execute();
+        resourceCache.refresh(encounter, outcome);
+        return (Encounter) outcome.getResource();
     }
     
     public Encounter updateEncounter(Encounter encounter) {
-        return (Encounter) fhirClient
+        MethodOutcome outcome = fhirClient
                 .update()
                 .resource(encounter)
-                .execute()
-                .getResource();
+                .execute();
+        resourceCache.refresh(encounter, outcome);
+        return (Encounter) outcome.getResource();
     }
     
     public void deleteEncounter(String id) {
@@ -92,5 +121,6 @@ public class EncounterFhirService {
                 .delete()
                 .resourceById("Encounter", id)
                 .execute();
+        resourceCache.invalidate("Encounter", id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,241 @@
+package com.journalsystem.service.fhir;
+
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.OperationOutcome;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends FHIR writes as batch or transaction Bundles so that a burst of
+ * creates, updates and deletes costs one round trip instead of one per resource.
+ * Each write gets the outcome of its own Bundle entry back; when a whole Bundle
+ * cannot be sent, only the writes in that Bundle fail.
+ */
+@Component
+public class FhirBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FhirBatchWriter.class);
+
+    @Autowired
+    private IGenericClient fhirClient;
+
+    @Autowired
+    private FhirResourceCache resourceCache;
+
+    @Value("${fhir.batch.type:batch}")
+    private String bundleType;
+
+    @Value("${fhir.batch.max-size:50}")
+    private int maxBatchSize;
+
+    /**
+     * Send the given writes now, split into Bundles of at most the configured size.
+     * Results are returned in the same order as the writes. A Bundle that fails to
+     * send, or times out, fails its own writes and the remaining Bundles are still sent.
+     */
+    public List<WriteResult> writeAll(List<Write> writes) {
+        List<WriteResult> results = new ArrayList<>(writes.size());
+        for (int start = 0; start < writes.size(); start += maxBatchSize) {
+            List<Write> chunk = writes.subList(start, Math.min(start + maxBatchSize, writes.size()));
+            try {
+                results.addAll(send(chunk));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to send bundle with {} FHIR writes: {}", chunk.size(), e.getMessage());
+                for (Write write : chunk) {
+                    // The server may still have applied it, so the cached copy cannot be trusted
+                    WriteResult result = WriteResult.failed(write, e.getMessage());
+                    updateCache(write, result);
+                    results.add(result);
+                }
+            }
+        }
+        return results;
+    }
+
+    private List<WriteResult> send(List<Write> writes) {
+        Bundle bundle = new Bundle();
+        bundle.setType("transaction".equalsIgnoreCase(bundleType)
+                ? Bundle.BundleType.TRANSACTION
+                : Bundle.BundleType.BATCH);
+        writes.forEach(write -> write.addTo(bundle));
+
+        Bundle response = fhirClient
+                .transaction()
+                .withBundle(bundle)
+                .execute();
+
+        List<WriteResult> results = new ArrayList<>(writes.size());
+        for (int i = 0; i < writes.size(); i++) {
+            Bundle.BundleEntryComponent entry = i < response.getEntry().size() ? response.getEntry().get(i) : null;
+            WriteResult result = WriteResult.from(writes.get(i), entry);
+            if (!result.isSuccess()) {
+                logger.warn("FHIR {} of {} failed: {}", writes.get(i).method, writes.get(i).resourceType, result.getError());
+            }
+            updateCache(writes.get(i), result);
+            results.add(result);
+        }
+        logger.debug("Sent {} bundle with {} FHIR writes", bundle.getType().toCode(), writes.size());
+        return results;
+    }
+
+    private void updateCache(Write write, WriteResult result) {
+        if (result.isSuccess() && write.method != Bundle.HTTPVerb.DELETE && result.getResource() != null) {
+            resourceCache.put(result.getResource());
+        } else if (result.getId() != null) {
+            resourceCache.invalidate(write.resourceType, result.getId());
+        } else if (write.id != null) {
+            resourceCache.invalidate(write.resourceType, write.id);
+        }
+    }
+
+    /**
+     * A single create, update or delete to be sent as one Bundle entry
+     */
+    public static class Write {
+        private final Bundle.HTTPVerb method;
+        private final String resourceType;
+        private final String id;
+        private final Resource resource;
+        // Search that selects the resource instead of an ID, e.g. "identifier=system|value"
+        private final String condition;
+
+        private Write(Bundle.HTTPVerb method, String resourceType, String id, Resource resource, String condition) {
+            this.method = method;
+            this.resourceType = resourceType;
+            this.id = id;
+            this.resource = resource;
+            this.condition = condition;
+        }
+
+        public static Write create(Resource resource) {
+            return new Write(Bundle.HTTPVerb.POST, resource.fhirType(), null, resource, null);
+        }
+
+        /**
+         * Conditional create: the server creates nothing if a resource already matches
+         * the search (e.g. "identifier=system|value"), so the write is safe to retry
+         */
+        public static Write createIfNoneExist(Resource resource, String ifNoneExist) {
+            return new Write(Bundle.HTTPVerb.POST, resource.fhirType(), null, resource, ifNoneExist);
+        }
+
+        public static Write update(Resource resource) {
+            return new Write(Bundle.HTTPVerb.PUT, resource.fhirType(), resource.getIdElement().getIdPart(), resource, null);
+        }
+
+        /**
+         * Conditional update: replaces the resource matching the search, or creates it if
+         * none matches, without needing to know its ID
+         */
+        public static Write updateWhere(Resource resource, String condition) {
+            return new Write(Bundle.HTTPVerb.PUT, resource.fhirType(), null, resource, condition);
+        }
+
+        public static Write delete(String resourceType, String id) {
+            return new Write(Bundle.HTTPVerb.DELETE, resourceType, id, null, null);
+        }
+
+        /**
+         * Conditional delete: deletes the resource matching the search, if there is one
+         */
+        public static Write deleteWhere(String resourceType, String condition) {
+            return new Write(Bundle.HTTPVerb.DELETE, resourceType, null, null, condition);
+        }
+
+        public String getResourceType() {
+            return resourceType;
+        }
+
+        private void addTo(Bundle bundle) {
+            Bundle.BundleEntryComponent entry = bundle.addEntry();
+            String url = condition != null ? resourceType + "?" + condition : resourceType + "/" + id;
+            switch (method) {
+                case POST -> {
+                    entry.setFullUrl(IdType.newRandomUuid().getValue());
+                    entry.setResource(resource);
+                    entry.getRequest().setMethod(method).setUrl(resourceType).setIfNoneExist(condition);
+                }
+                case PUT -> {
+                    entry.setFullUrl(id != null ? resourceType + "/" + id : IdType.newRandomUuid().getValue());
+                    entry.setResource(resource);
+                    entry.getRequest().setMethod(method).setUrl(url);
+                }
+                default -> entry.getRequest().setMethod(method).setUrl(url);
+            }
+        }
+    }
+
+    /**
+     * Outcome of one Bundle entry as reported by the server
+     */
+    public static class WriteResult {
+        private final boolean success;
+        private final String status;
+        private final String id;
+        private final Resource resource;
+        private final String error;
+
+        private WriteResult(boolean success, String status, String id, Resource resource, String error) {
+            this.success = success;
+            this.status = status;
+            this.id = id;
+            this.resource = resource;
+            this.error = error;
+        }
+
+        static WriteResult failed(Write write, String error) {
+            return new WriteResult(false, null, write.id, null, error);
+        }
+
+        static WriteResult from(Write write, Bundle.BundleEntryComponent entry) {
+            if (entry == null || !entry.hasResponse()) {
+                return new WriteResult(false, null, write.id, null, "No response entry returned by server");
+            }
+
+            Bundle.BundleEntryResponseComponent response = entry.getResponse();
+            String status = response.getStatus();
+            boolean success = status != null && status.startsWith("2");
+            String id = response.hasLocation() ? new IdType(response.getLocation()).getIdPart() : write.id;
+            String error = null;
+            if (!success && response.getOutcome() instanceof OperationOutcome) {
+                OperationOutcome outcome = (OperationOutcome) response.getOutcome();
+                error = outcome.hasIssue() ? outcome.getIssueFirstRep().getDiagnostics() : status;
+            } else if (!success) {
+                error = status;
+            }
+            return new WriteResult(success, status, id, entry.getResource(), error);
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        /**
+         * Server-assigned (or existing) logical ID of the written resource
+         */
+        public String getId() {
+            return id;
+        }
+
+        public Resource getResource() {
+            return resource;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
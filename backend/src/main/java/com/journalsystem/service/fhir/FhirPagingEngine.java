@@ -0,0 +1,439 @@
+package com.journalsystem.service.fhir;
+
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import com.journalsystem.dto.KeysetPage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Fetches every page of a FHIR search result.
+ * When the first page reports a total and its next link carries an offset parameter,
+ * all remaining page URLs are computed up front and fetched concurrently. Otherwise the
+ * next page is prefetched while the current one is being processed. Pages are always
+ * handed to the caller in their original order.
+ * Results can also be streamed, in which case pages are pulled on demand and only
+ * one page is ever held beyond the one being consumed.
+ * Results are capped at a configurable number of resources, whether materialized or
+ * streamed, and every page fetch, the first one included, is bounded by a timeout
+ * (the first one by the HTTP client's own timeouts).
+ * Callers pass the search itself rather than its first page so the engine can run it;
+ * the first page is loaded on the caller's thread. Later pages run on a shared pool,
+ * with at most max-in-flight of them outstanding for any one search.
+ */
+@Component
+public class FhirPagingEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(FhirPagingEngine.class);
+
+    private static final List<String> OFFSET_PARAMETERS = List.of("_getpagesoffset", "_offset");
+
+    @Autowired
+    private IGenericClient fhirClient;
+
+    // Per search: the most pages of one result fetched at the same time
+    @Value("${fhir.paging.max-in-flight:4}")
+    private int maxInFlight;
+
+    // Shared by all searches; sized for many concurrent searches, below the connection pool
+    @Value("${fhir.paging.threads:32}")
+    private int threads;
+
+    @Value("${fhir.paging.page-size:100}")
+    private int pageSize;
+
+    @Value("${fhir.paging.max-results:5000}")
+    private int maxResults;
+
+    @Value("${fhir.paging.page-timeout-seconds:30}")
+    private long pageTimeoutSeconds;
+
+    private ExecutorService executor;
+
+    private final AtomicLong pagesFetched = new AtomicLong();
+    private final AtomicLong bytesFetched = new AtomicLong();
+    private final AtomicLong pagingNanos = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "fhir-paging-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Page size to request with {@code _count} on searches
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Collect the resources from every page of a search result, up to the configured maximum.
+     * The result says whether the server had more than that.
+     */
+    public <T extends Resource> PagedResults<T> fetchAll(Supplier<Bundle> search, Class<T> resourceClass) {
+        List<T> resources = new ArrayList<>();
+        boolean truncated = forEachPage(search, resourceClass, resources::addAll);
+        return new PagedResults<>(resources, truncated);
+    }
+
+    /**
+     * Hand the resources of every page to the consumer, one page at a time and in order.
+     * Paging stops once the configured maximum number of results has been delivered;
+     * returns true when it stopped there with more results left on the server.
+     */
+    public <T extends Resource> boolean forEachPage(Supplier<Bundle> search, Class<T> resourceClass,
+                                                    Consumer<List<T>> pageConsumer) {
+        long start = System.nanoTime();
+        long bytesBefore = bytesFetched.get();
+        Bundle firstPage = load(search);
+
+        List<String> pageUrls = computePageUrls(firstPage);
+        Paging paging = pageUrls != null
+                ? fetchByOffset(firstPage, pageUrls, resourceClass, pageConsumer)
+                : fetchPipelined(firstPage, start, resourceClass, pageConsumer);
+
+        long elapsed = System.nanoTime() - start;
+        if (pageUrls != null) {
+            // The pipelined path is timed by its page iterator
+            pagingNanos.addAndGet(elapsed);
+        }
+        logger.debug("Fetched {} {} pages ({} bytes) in {} ms", paging.pages(), resourceClass.getSimpleName(),
+                bytesFetched.get() - bytesBefore, elapsed / 1_000_000);
+        return paging.truncated();
+    }
+
+    /**
+     * A single page of a search, for clients that page through a result themselves.
+     * Without an after cursor the search runs; otherwise the page its next link
+     * points at is loaded, so every page costs one request however deep it is.
+     * The next cursor wraps the server's next link and is null on the last page.
+     */
+    public <T extends Resource> KeysetPage<T> fetchPage(Supplier<Bundle> search, String after, Class<T> resourceClass) {
+        Bundle page;
+        if (after == null) {
+            page = load(search);
+        } else {
+            String pageUrl = KeysetPage.cursorLink(after);
+            // Only ever follow links back to our own FHIR server
+            if (!pageUrl.startsWith(fhirClient.getServerBase())) {
+                throw new IllegalArgumentException("Invalid cursor: " + after);
+            }
+            page = load(() -> fhirClient
+                    .loadPage()
+                    .byUrl(pageUrl)
+                    .andReturnBundle(Bundle.class)
+                    .execute());
+        }
+        Bundle.BundleLinkComponent nextLink = page.getLink(Bundle.LINK_NEXT);
+        return new KeysetPage<>(toResources(page, resourceClass),
+                nextLink != null ? KeysetPage.encodeLinkCursor(nextLink.getUrl()) : null);
+    }
+
+    /**
+     * Lazily stream the resources of a search result, pulling pages as they are consumed.
+     * Close the stream when done early so a prefetched page is not left behind.
+     */
+    public <T extends Resource> Stream<T> stream(Supplier<Bundle> search, Class<T> resourceClass) {
+        return streamPages(search, resourceClass).flatMap(List::stream);
+    }
+
+    /**
+     * Lazily stream a search result page by page. Each Bundle is released as soon as its
+     * resources have been extracted; only the next page's URL is kept. The stream ends
+     * once the configured maximum number of results has been delivered.
+     */
+    public <T extends Resource> Stream<List<T>> streamPages(Supplier<Bundle> search, Class<T> resourceClass) {
+        long start = System.nanoTime();
+        PageIterator<T> pages = new PageIterator<>(load(search), start, resourceClass);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(pages::close);
+    }
+
+    /**
+     * Page and byte counters, with rates over the time spent paging
+     */
+    public Map<String, Object> getStatistics() {
+        double seconds = pagingNanos.get() / 1_000_000_000.0;
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("pages", pagesFetched.get());
+        statistics.put("bytes", bytesFetched.get());
+        statistics.put("seconds", seconds);
+        statistics.put("pagesPerSecond", seconds > 0 ? pagesFetched.get() / seconds : 0.0);
+        statistics.put("bytesPerSecond", seconds > 0 ? bytesFetched.get() / seconds : 0.0);
+        statistics.put("maxInFlight", maxInFlight);
+        statistics.put("threads", threads);
+        statistics.put("pageSize", pageSize);
+        statistics.put("maxResults", maxResults);
+        return statistics;
+    }
+
+    private <T extends Resource> Paging fetchByOffset(Bundle firstPage, List<String> pageUrls, Class<T> resourceClass,
+                                                      Consumer<List<T>> pageConsumer) {
+        // This search's own window of outstanding pages, so one large result cannot take the whole pool
+        Deque<Future<Bundle>> inFlight = new ArrayDeque<>();
+        ResultCap cap = new ResultCap(resourceClass);
+        int pages = 1;
+        try {
+            int next = 0;
+            while (next < pageUrls.size() && inFlight.size() < maxInFlight) {
+                inFlight.add(submit(pageUrls.get(next++)));
+            }
+
+            pageConsumer.accept(cap.take(firstPage, toResources(firstPage, resourceClass)));
+
+            while (!inFlight.isEmpty() && !cap.isFull()) {
+                Bundle page = await(inFlight.poll());
+                pages++;
+                if (next < pageUrls.size()) {
+                    inFlight.add(submit(pageUrls.get(next++)));
+                }
+                pageConsumer.accept(cap.take(page, toResources(page, resourceClass)));
+            }
+        } finally {
+            // A failed page, a full cap or a consumer that gave up (e.g. a client that
+            // disconnected) must not leave the rest of the window running on the shared pool
+            inFlight.forEach(page -> page.cancel(true));
+        }
+        return new Paging(pages, cap.isTruncated());
+    }
+
+    private <T extends Resource> Paging fetchPipelined(Bundle firstPage, long start, Class<T> resourceClass,
+                                                       Consumer<List<T>> pageConsumer) {
+        PageIterator<T> pages = new PageIterator<>(firstPage, start, resourceClass);
+        try {
+            while (pages.hasNext()) {
+                pageConsumer.accept(pages.next());
+            }
+        } finally {
+            pages.close();
+        }
+        return new Paging(pages.pages, pages.cap.isTruncated());
+    }
+
+    /**
+     * Build the URLs of all remaining pages, or null when the server's paging links
+     * cannot be addressed by offset
+     */
+    private List<String> computePageUrls(Bundle firstPage) {
+        Bundle.BundleLinkComponent nextLink = firstPage.getLink(Bundle.LINK_NEXT);
+        if (nextLink == null || !firstPage.hasTotal()) {
+            return nextLink == null ? List.of() : null;
+        }
+
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(nextLink.getUrl());
+        MultiValueMap<String, String> params = builder.build().getQueryParams();
+        String offsetParameter = OFFSET_PARAMETERS.stream()
+                .filter(params::containsKey)
+                .findFirst()
+                .orElse(null);
+        if (offsetParameter == null) {
+            return null;
+        }
+
+        try {
+            int firstOffset = Integer.parseInt(params.getFirst(offsetParameter));
+            int linkPageSize = params.containsKey("_count")
+                    ? Integer.parseInt(params.getFirst("_count"))
+                    : firstPage.getEntry().size();
+            if (linkPageSize <= 0) {
+                return null;
+            }
+
+            List<String> urls = new ArrayList<>();
+            int end = Math.min(firstPage.getTotal(), maxResults);
+            for (int offset = firstOffset; offset < end; offset += linkPageSize) {
+                urls.add(builder.replaceQueryParam(offsetParameter, offset).build().toUriString());
+            }
+            return urls;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private Future<Bundle> submit(String pageUrl) {
+        return executor.submit(() -> load(() -> fhirClient
+                .loadPage()
+                .byUrl(pageUrl)
+                .andReturnBundle(Bundle.class)
+                .execute()));
+    }
+
+    private Bundle load(Supplier<Bundle> call) {
+        Bundle page = FhirResponseSizeInterceptor.measure(call, bytesFetched::addAndGet);
+        pagesFetched.incrementAndGet();
+        return page;
+    }
+
+    private Bundle await(Future<Bundle> page) {
+        try {
+            return page.get(pageTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            page.cancel(true);
+            throw new RuntimeException("Timed out after " + pageTimeoutSeconds + "s fetching FHIR page", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching FHIR page", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Failed to fetch FHIR page", e.getCause());
+        }
+    }
+
+    private <T extends Resource> List<T> toResources(Bundle page, Class<T> resourceClass) {
+        return page.getEntry().stream()
+                .map(Bundle.BundleEntryComponent::getResource)
+                .filter(resourceClass::isInstance)
+                .map(resourceClass::cast)
+                .collect(Collectors.toList());
+    }
+
+    private record Paging(int pages, boolean truncated) {
+    }
+
+    /**
+     * The resources handed out so far for one search, checked against the configured
+     * maximum. Every way of reading a result passes its pages through here, so none can
+     * deliver past the limit.
+     */
+    private class ResultCap {
+        private final Class<?> resourceClass;
+        private int delivered;
+        private boolean truncated;
+
+        ResultCap(Class<?> resourceClass) {
+            this.resourceClass = resourceClass;
+        }
+
+        /**
+         * The part of the page's resources still within the maximum
+         */
+        <T> List<T> take(Bundle page, List<T> resources) {
+            int remaining = maxResults - delivered;
+            if (resources.size() > remaining
+                    || (resources.size() == remaining && page.getLink(Bundle.LINK_NEXT) != null)) {
+                resources = new ArrayList<>(resources.subList(0, remaining));
+                truncated = true;
+                logger.warn("{} search returned more than {} results, truncating", resourceClass.getSimpleName(), maxResults);
+            }
+            delivered += resources.size();
+            return resources;
+        }
+
+        boolean isFull() {
+            return delivered >= maxResults;
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+    }
+
+    /**
+     * Pages of a result in order, each following the previous page's next link. The next
+     * page is prefetched while the caller works through the current one.
+     */
+    private class PageIterator<T extends Resource> implements Iterator<List<T>> {
+        private final Class<T> resourceClass;
+        private final long start;
+        private final ResultCap cap;
+        private List<T> ready;
+        private Future<Bundle> nextPage;
+        private int pages;
+        private boolean finished;
+
+        PageIterator(Bundle firstPage, long start, Class<T> resourceClass) {
+            this.resourceClass = resourceClass;
+            this.start = start;
+            this.cap = new ResultCap(resourceClass);
+            accept(firstPage);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (ready == null && nextPage != null) {
+                accept(await(nextPage));
+            }
+            if (ready == null) {
+                finish();
+            }
+            return ready != null;
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<T> resources = ready;
+            ready = null;
+            return resources;
+        }
+
+        private void accept(Bundle page) {
+            pages++;
+            ready = cap.take(page, toResources(page, resourceClass));
+            Bundle.BundleLinkComponent nextLink = page.getLink(Bundle.LINK_NEXT);
+            nextPage = nextLink != null && !cap.isFull() ? submit(nextLink.getUrl()) : null;
+        }
+
+        void close() {
+            if (nextPage != null) {
+                nextPage.cancel(true);
+                nextPage = null;
+            }
+            ready = null;
+            finish();
+        }
+
+        private void finish() {
+            if (!finished) {
+                finished = true;
+                pagingNanos.addAndGet(System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.journalsystem.service.fhir;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing for FHIR calls. While a call for a given key is in flight,
+ * other callers asking for the same key wait for it and get its result instead of
+ * sending their own request. Nothing is kept once the call completes, so this never
+ * serves stale data; it only removes duplicate concurrent requests.
+ * Results are shared between callers, so calls must return read-only values
+ * (PagedResults is read-only; the resource cache copies what it hands out).
+ */
+@Component
+public class FhirRequestCoalescer {
+
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Run the call, or join an identical call that is already running
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> call) {
+        CompletableFuture<Object> ours = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, ours);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return (T) join(existing);
+        }
+
+        executed.incrementAndGet();
+        try {
+            T result = call.get();
+            ours.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            ours.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, ours);
+        }
+    }
+
+    /**
+     * Calls sent, duplicate calls absorbed and calls currently in flight
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("executed", executed.get());
+        statistics.put("coalesced", coalesced.get());
+        statistics.put("inFlight", (long) inFlight.size());
+        return statistics;
+    }
+
+    private Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.journalsystem.service.fhir;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.server.exceptions.ResourceGoneException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.hl7.fhir.r4.model.IdType;
+import org.hl7.fhir.r4.model.Resource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded read-through cache in front of single-resource FHIR reads.
+ * Each resource type gets its own LRU map. Entries remember the resource version
+ * so a stale entry is revalidated with If-None-Match instead of being downloaded again.
+ */
+@Component
+public class FhirResourceCache {
+
+    @Autowired
+    private IGenericClient fhirClient;
+
+    @Autowired
+    private FhirContext fhirContext;
+
+    @Autowired
+    private FhirRequestCoalescer coalescer;
+
+    @Value("${fhir.cache.max-entries-per-type:500}")
+    private int maxEntriesPerType;
+
+    @Value("${fhir.cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    private final Map<String, TypeCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Read a resource by ID, serving it from the cache when the entry is fresh
+     * and revalidating it against the server when it has gone stale.
+     * Concurrent misses for the same resource share one request.
+     * Callers get their own copy, so they are free to modify it.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Resource> T read(Class<T> resourceClass, String id) {
+        String resourceType = fhirContext.getResourceType(resourceClass);
+        String idPart = new IdType(id).getIdPart();
+        TypeCache cache = cacheFor(resourceType);
+
+        CachedResource entry = cache.get(idPart);
+        if (entry != null && !entry.isStale(ttlSeconds)) {
+            cache.recordHit();
+            return (T) entry.resource.copy();
+        }
+
+        Resource resource = coalescer.execute(resourceType + "/" + idPart,
+                () -> load(resourceClass, idPart, cache, cache.get(idPart)));
+        return (T) resource.copy();
+    }
+
+    /**
+     * Store a resource returned by one of our own writes
+     */
+    public void put(Resource resource) {
+        if (resource == null || !resource.getIdElement().hasIdPart()) {
+            return;
+        }
+        cacheFor(resource.fhirType()).put(resource.getIdElement().getIdPart(), new CachedResource(resource.copy()));
+    }
+
+    /**
+     * Refresh the cache after a create or update. If the server returned the stored
+     * resource it replaces the entry, otherwise the entry is dropped.
+     */
+    public void refresh(IBaseResource written, MethodOutcome outcome) {
+        if (outcome != null && outcome.getResource() instanceof Resource
+                && ((Resource) outcome.getResource()).getIdElement().hasIdPart()) {
+            put((Resource) outcome.getResource());
+            return;
+        }
+
+        IIdType id = outcome != null && outcome.getId() != null ? outcome.getId() : written.getIdElement();
+        if (id != null && id.hasIdPart()) {
+            invalidate(id.hasResourceType() ? id.getResourceType() : fhirContext.getResourceType(written), id.getIdPart());
+        }
+    }
+
+    /**
+     * Remove a resource from the cache, e.g. after it has been deleted
+     */
+    public void invalidate(String resourceType, String id) {
+        TypeCache cache = caches.get(resourceType);
+        if (cache != null) {
+            cache.remove(new IdType(id).getIdPart());
+        }
+    }
+
+    /**
+     * Hit, miss, revalidation and eviction counters per resource type
+     */
+    public Map<String, Map<String, Long>> getStatistics() {
+        Map<String, Map<String, Long>> statistics = new TreeMap<>();
+        caches.forEach((resourceType, cache) -> statistics.put(resourceType, cache.statistics()));
+        return statistics;
+    }
+
+    private <T extends Resource> Resource load(Class<T> resourceClass, String idPart, TypeCache cache, CachedResource entry) {
+        try {
+            if (entry != null && entry.versionId != null) {
+                // Stale but versioned - ask the server whether our copy is still current
+                T current = fhirClient
+                        .read()
+                        .resource(resourceClass)
+                        .withId(idPart)
+                        .ifVersionMatches(entry.versionId)
+                        .returnNull()
+                        .execute();
+                if (current == null) {
+                    cache.recordRevalidation();
+                    cache.put(idPart, entry.refreshed());
+                    return entry.resource;
+                }
+                cache.recordMiss();
+                cache.put(idPart, new CachedResource(current));
+                return current;
+            }
+
+            cache.recordMiss();
+            T resource = fhirClient
+                    .read()
+                    .resource(resourceClass)
+                    .withId(idPart)
+                    .execute();
+            cache.put(idPart, new CachedResource(resource));
+            return resource;
+        } catch (ResourceNotFoundException | ResourceGoneException e) {
+            cache.remove(idPart);
+            throw e;
+        }
+    }
+
+    private TypeCache cacheFor(String resourceType) {
+        return caches.computeIfAbsent(resourceType, type -> new TypeCache(maxEntriesPerType));
+    }
+
+    private static class CachedResource {
+        private final Resource resource;
+        private final String versionId;
+        private final long validatedAt;
+
+        CachedResource(Resource resource) {
+            this(resource, System.currentTimeMillis());
+        }
+
+        private CachedResource(Resource resource, long validatedAt) {
+            this.resource = resource;
+            this.versionId = resource.getIdElement().hasVersionIdPart()
+                    ? resource.getIdElement().getVersionIdPart()
+                    : resource.getMeta().getVersionId();
+            this.validatedAt = validatedAt;
+        }
+
+        boolean isStale(long ttlSeconds) {
+            return System.currentTimeMillis() - validatedAt > ttlSeconds * 1000;
+        }
+
+        CachedResource refreshed() {
+            return new CachedResource(resource, System.currentTimeMillis());
+        }
+    }
+
+    private static class TypeCache {
+        private final LinkedHashMap<String, CachedResource> entries;
+        private long hits;
+        private long misses;
+        private long revalidations;
+        private long evictions;
+
+        TypeCache(int maxEntries) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedResource> eldest) {
+                    if (size() > maxEntries) {
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized CachedResource get(String id) {
+            return entries.get(id);
+        }
+
+        synchronized void put(String id, CachedResource resource) {
+            entries.put(id, resource);
+        }
+
+        synchronized void remove(String id) {
+            entries.remove(id);
+        }
+
+        synchronized void recordHit() {
+            hits++;
+        }
+
+        synchronized void recordMiss() {
+            misses++;
+        }
+
+        synchronized void recordRevalidation() {
+            revalidations++;
+        }
+
+        synchronized Map<String, Long> statistics() {
+            Map<String, Long> statistics = new LinkedHashMap<>();
+            statistics.put("size", (long) entries.size());
+            statistics.put("hits", hits);
+            statistics.put("misses", misses);
+            statistics.put("revalidations", revalidations);
+            statistics.put("evictions", evictions);
+            return statistics;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.journalsystem.service.fhir;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
+import ca.uhn.fhir.rest.api.SummaryEnum;
+import ca.uhn.fhir.rest.client.api.IGenericClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts FHIR resources with _summary=count, so the server only sends back
+ * Bundle.total instead of the resources themselves.
+ */
+@Component
+public class FhirResourceCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FhirResourceCounter.class);
+
+    @Autowired
+    private IGenericClient fhirClient;
+
+    @Autowired
+    private FhirContext fhirContext;
+
+    @Autowired
+    private FhirRequestCoalescer coalescer;
+
+    @Value("${fhir.count.max-in-flight:8}")
+    private int maxInFlight;
+
+    @Value("${fhir.count.timeout-seconds:10}")
+    private long timeoutSeconds;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "fhir-count-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Total number of resources of the given type on the server
+     */
+    public int countResources(Class<? extends Resource> resourceClass) {
+        String resourceType = fhirContext.getResourceType(resourceClass);
+        return coalescer.execute(resourceType + "?_summary=count", () -> {
+            Bundle bundle = fhirClient
+                    .search()
+                    .forResource(resourceClass)
+                    .summaryMode(SummaryEnum.COUNT)
+                    .totalMode(SearchTotalModeEnum.ACCURATE)
+                    .returnBundle(Bundle.class)
+                    .execute();
+            return bundle.getTotal();
+        });
+    }
+
+    /**
+     * Count several resource types concurrently, keyed by resource type.
+     * A type whose count fails or does not finish within the timeout maps to null.
+     */
+    public Map<String, Integer> countResources(List<Class<? extends Resource>> resourceClasses) {
+        Map<String, Future<Integer>> pending = new LinkedHashMap<>();
+        for (Class<? extends Resource> resourceClass : resourceClasses) {
+            pending.put(fhirContext.getResourceType(resourceClass), executor.submit(() -> countResources(resourceClass)));
+        }
+
+        // All counts run in parallel, so each one gets the timeout measured from the same start
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        pending.forEach((resourceType, count) -> counts.put(resourceType, await(resourceType, count, deadline)));
+        return counts;
+    }
+
+    private Integer await(String resourceType, Future<Integer> count, long deadline) {
+        try {
+            return count.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            count.cancel(true);
+            logger.warn("Timed out after {}s counting {} resources", timeoutSeconds, resourceType);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            count.cancel(true);
+        } catch (ExecutionException e) {
+            logger.warn("Failed to count {} resources: {}", resourceType, e.getCause().getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,88 @@
+package com.journalsystem.service.fhir;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * HTTP client interceptor that reports the size of FHIR responses as received on the wire.
+ * It must run before the client decompresses the body, so gzip responses are counted at
+ * their compressed size. Bytes are counted as the parser reads them; nothing is buffered.
+ * Only calls wrapped in {@link #measure} are measured, everything else passes straight through.
+ */
+public class FhirResponseSizeInterceptor implements HttpResponseInterceptor {
+
+    private static final ThreadLocal<long[]> RESPONSE_SIZE = new ThreadLocal<>();
+
+    /**
+     * Run a FHIR call on the current thread and report how many response bytes it read
+     */
+    public static <T> T measure(Supplier<T> call, LongConsumer sizeConsumer) {
+        long[] size = new long[1];
+        RESPONSE_SIZE.set(size);
+        try {
+            return call.get();
+        } finally {
+            RESPONSE_SIZE.remove();
+            sizeConsumer.accept(size[0]);
+        }
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+        long[] size = RESPONSE_SIZE.get();
+        HttpEntity entity = response.getEntity();
+        if (size == null || entity == null) {
+            return;
+        }
+        response.setEntity(new CountingEntity(entity, size));
+    }
+
+    private static class CountingEntity extends HttpEntityWrapper {
+
+        private final long[] size;
+
+        CountingEntity(HttpEntity entity, long[] size) {
+            super(entity);
+            this.size = size;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(super.getContent()) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b != -1) {
+                        size[0]++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    if (read > 0) {
+                        size[0] += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip(long n) throws IOException {
+                    long skipped = super.skip(n);
+                    size[0] += skipped;
+                    return skipped;
+                }
+            };
+        }
+    }
+}
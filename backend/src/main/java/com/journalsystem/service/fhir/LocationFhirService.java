@@ -11,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Service class for interacting with Location resources in the FHIR server
@@ -23,22 +24,24 @@ public class LocationFhirService {
     @Autowired
     private IGenericClient fhirClient;
     
+    @Autowired
+    private FhirResourceCache resourceCache;
+    
+    @Autowired
+    private FhirPagingEngine pagingEngine;
+    
     /**
      * Get all locations from FHIR server
      */
     public List<Location> getAllLocations() {
         try {
-            Bundle bundle = fhirClient.search()
+            Supplier<Bundle> search = () -> fhirClient.search()
                     .forResource(Location.class)
                     .returnBundle(Bundle.class)
+                    .count(pagingEngine.getPageSize())
                     .execute();
             
-            List<Location> locations = new ArrayList<>();
-            bundle.getEntry().forEach(entry -> {
-                if (entry.getResource() instanceof Location) {
-                    locations.add((Location) entry.getResource());
-                }
-            });
+            List<Location> locations = pagingEngine.fetchAll(search, Location.class);
             
             logger.info("Retrieved {} locations from FHIR server", locations.size());
             return locations;
@@ -53,11 +56,7 @@ public class LocationFhirService {
      */
     public Optional<Location> getLocationById(String id) {
         try {
-            Location location = (Location) fhirClient.read()
-                    .resource(Location.class)
-                    .withId(id)
-                    .execute();
-            return Optional.of(location);
+            return Optional.of(resourceCache.read(Location.class, id));
         } catch (Exception e) {
             logger.error("Error fetching location with ID {} from FHIR server", id, e);
             return Optional.empty();
@@ -72,6 +71,7 @@ public class LocationFhirService {
             MethodOutcome outcome = fhirClient.create()
                     .resource(location)
                     .execute();
+            resourceCache.refresh(location, outcome);
             
             return (Location) outcome.getResource();
         } catch (Exception e) {
@@ -88,6 +88,7 @@ public class LocationFhirService {
             MethodOutcome outcome = fhirClient.update()
                     .resource(location)
                     .execute();
+            resourceCache.refresh(location, outcome);
             
             return (Location) outcome.getResource();
         } catch (Exception e) {
@@ -104,6 +105,7 @@ public class LocationFhirService {
             fhirClient.delete()
                     .resourceById("Location", id)
                     .execute();
+            resourceCache.invalidate("Location", id);
             
             logger.info("Deleted location with ID {} from FHIR server", id);
         } catch (Exception e) {
@@ -117,18 +119,14 @@ public class LocationFhirService {
      */
     public List<Location> searchLocationsByName(String name) {
         try {
-            Bundle bundle = fhirClient.search()
+            Supplier<Bundle> search = () -> fhirClient.search()
                     .forResource(Location.class)
                     .where(Location.NAME.matches().value(name))
                     .returnBundle(Bundle.class)
+                    .count(pagingEngine.getPageSize())
                     .execute();
             
-            List<Location> locations = new ArrayList<>();
-            bundle.getEntry().forEach(entry -> {
-                if (entry.getResource() instanceof Location) {
-                    locations.add((Location) entry.getResource());
-                }
-            });
+            List<Location> locations = pagingEngine.fetchAll(search, Location.class);
             
             return locations;
         } catch (Exception e) {
@@ -142,18 +140,14 @@ public class LocationFhirService {
      */
     public List<Location> getLocationsByOrganization(String organizationId) {
         try {
-            Bundle bundle = fhirClient.search()
+            Supplier<Bundle> search = () -> fhirClient.search()
                     .forResource(Location.class)
                     .where(Location.ORGANIZATION.hasId(organizationId))
                     .returnBundle(Bundle.class)
+                    .count(pagingEngine.getPageSize())
                     .execute();
             
-            List<Location> locations = new ArrayList<>();
-            bundle.getEntry().forEach(entry -> {
-                if (entry.getResource() instanceof Location) {
-                    locations.add((Location) entry.getResource());
-                }
-            });
+            List<Location> locations = pagingEngine.fetchAll(search, Location.class);
             
             return locations;
         } catch (Exception e) {
@@ -1,15 +1,16 @@
 package com.journalsystem.service.fhir;
 
+import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
-import ca.uhn.fhir.util.BundleUtil;
+import com.journalsystem.dto.KeysetPage;
 import org.hl7.fhir.r4.model.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import ca.uhn.fhir.context.FhirContext;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class ObservationFhirService {
@@ -18,73 +19,101 @@ public class ObservationFhirService {
     private IGenericClient fhirClient;
     
     @Autowired
-    private FhirContext fhirContext;
+    private FhirResourceCache resourceCache;
+    
+    @Autowired
+    private FhirPagingEngine pagingEngine;
+    
+    @Autowired
+    private FhirRequestCoalescer coalescer;
     
     public Optional<Observation> getObservationById(String id) {
         try {
-            Observation observation = fhirClient
-                    .read()
-                    .resource(Observation.class)
-                    .withId(id)
-                    .execute();
-            return Optional.of(observation);
+            return Optional.of(resourceCache.read(Observation.class, id));
         } catch (Exception e) {
             return Optional.empty();
         }
     }
     
-    public List<Observation> getObservationsByPatient(String patientId) {
-        Bundle bundle = fhirClient
+    public PagedResults<Observation> getObservationsByPatient(String patientId) {
+        return coalescer.execute("Observation?patient=" + patientId,
+                () -> pagingEngine.fetchAll(() -> searchObservationsByPatient(patientId), Observation.class));
+    }
+    
+    /**
+     * Stream a patient's observations, fetching the next page only as the caller gets to it.
+     * Not coalesced, as a stream cannot be shared. The caller must close the stream.
+     */
+    public Stream<Observation> streamObservationsByPatient(String patientId) {
+        return pagingEngine.stream(() -> searchObservationsByPatient(patientId), Observation.class);
+    }
+    
+    /**
+     * One page of a patient's observations, newest first by date. Later pages are read from the
+     * server's next link carried in the cursor, so a deep page costs no more than the first.
+     */
+    public KeysetPage<Observation> getObservationsPageByPatient(String patientId, String after, int limit) {
+        return pagingEngine.fetchPage(() -> fhirClient
                 .search()
                 .forResource(Observation.class)
                 .where(Observation.PATIENT.hasId(patientId))
+                .sort().descending(Observation.DATE)
                 .returnBundle(Bundle.class)
-                .execute();
-        
-        return BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                .map(entry -> (Observation) entry.getResource())
-                .collect(Collectors.toList());
+                .count(limit)
+                .execute(), after, Observation.class);
     }
     
-    public List<Observation> getObservationsByEncounter(String encounterId) {
-        Bundle bundle = fhirClient
+    private Bundle searchObservationsByPatient(String patientId) {
+        return fhirClient
                 .search()
                 .forResource(Observation.class)
-                .where(Observation.ENCOUNTER.hasId(encounterId))
+                .where(Observation.PATIENT.hasId(patientId))
                 .returnBundle(Bundle.class)
+                .count(pagingEngine.getPageSize())
                 .execute();
-        
-        return BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                .map(entry -> (Observation) entry.getResource())
-                .collect(Collectors.toList());
     }
     
-    public List<Observation> getAllObservations() {
-        Bundle bundle = fhirClient
+    public List<Observation> getObservationsByEncounter(String encounterId) {
+        Supplier<Bundle> search = () -> fhirClient
                 .search()
                 .forResource(Observation.class)
+                .where(Observation.ENCOUNTER.hasId(encounterId))
                 .returnBundle(Bundle.class)
+                .count(pagingEngine.getPageSize())
                 .execute();
         
-        return BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                .map(entry -> (Observation) entry.getResource())
-                .collect(Collectors.toList());
+        return pagingEngine.fetchAll(search, Observation.class);
+    }
+    
+    public List<Observation> getAllObservations() {
+        return coalescer.execute("Observation", () -> {
+            Supplier<Bundle> search = () -> fhirClient
+                    .search()
+                    .forResource(Observation.class)
+                    .returnBundle(Bundle.class)
+                    .count(pagingEngine.getPageSize())
+                    .execute();
+            
+            return pagingEngine.fetchAll(search, Observation.class);
+        });
     }
     
     public Observation createObservation(Observation observation) {
-        return (Observation) fhirClient
+        MethodOutcome outcome = fhirClient
                 .create()
                 .resource(observation)
-                .execute()
-                .getResource();
+                .execute();
+        resourceCache.refresh(observation, outcome);
+        return (Observation) outcome.getResource();
     }
     
     public Observation updateObservation(Observation observation) {
-        return (Observation) fhirClient
+        MethodOutcome outcome = fhirClient
                 .update()
                 .resource(observation)
-                .execute()
-                .getResource();
+                .execute();
+        resourceCache.refresh(observation, outcome);
+        return (Observation) outcome.getResource();
     }
     
     public void deleteObservation(String id) {
@@ -92,5 +121,6 @@ public class ObservationFhirService {
                 .delete()
                 .resourceById("Observation", id)
                 .execute();
+        resourceCache.invalidate("Observation", id);
     }
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 /**
  * Service class for interacting with Organization resources in the FHIR server
@@ -23,22 +24,24 @@ public class OrganizationFhirService {
     @Autowired
     private IGenericClient fhirClient;
     
+    @Autowired
+    private FhirResourceCache resourceCache;
+    
+    @Autowired
+    private FhirPagingEngine pagingEngine;
+    
     /**
      * Get all organizations from FHIR server
      */
     public List<Organization> getAllOrganizations() {
         try {
-            Bundle bundle = fhirClient.search()
+            Supplier<Bundle> search = () -> fhirClient.search()
                     .forResource(Organization.class)
                     .returnBundle(Bundle.class)
+                    .count(pagingEngine.getPageSize())
                     .execute();
             
-            List<Organization> organizations = new ArrayList<>();
-            bundle.getEntry().forEach(entry -> {
-                if (entry.getResource() instanceof Organization) {
-                    organizations.add((Organization) entry.getResource());
-                }
-            });
+            List<Organization> organizations = pagingEngine.fetchAll(search, Organization.class);
             
             logger.info("Retrieved {} organizations from FHIR server", organizations.size());
             return organizations;
@@ -53,11 +56,7 @@ public class OrganizationFhirService {
      */
     public Optional<Organization> getOrganizationById(String id) {
         try {
-            Organization organization = (Organization) fhirClient.read()
-                    .resource(Organization.class)
-                    .withId(id)
-                    .execute();
-            return Optional.of(organization);
+            return Optional.of(resourceCache.read(Organization.class, id));
         } catch (Exception e) {
             logger.error("Error fetching organization with ID {} from FHIR server", id, e);
             return Optional.empty();
@@ -72,6 +71,7 @@ public class OrganizationFhirService {
             MethodOutcome outcome = fhirClient.create()
                     .resource(organization)
                     .execute();
+            resourceCache.refresh(organization, outcome);
             
             return (Organization) outcome.getResource();
         } catch (Exception e) {
@@ -88,6 +88,7 @@ public class OrganizationFhirService {
             MethodOutcome outcome = fhirClient.update()
                     .resource(organization)
                     .execute();
+            resourceCache.refresh(organization, outcome);
             
             return (Organization) outcome.getResource();
         } catch (Exception e) {
@@ -104,6 +105,7 @@ public class OrganizationFhirService {
             fhirClient.delete()
                     .resourceById("Organization", id)
                     .execute();
+            resourceCache.invalidate("Organization", id);
             
             logger.info("Deleted organization with ID {} from FHIR server", id);
         } catch (Exception e) {
@@ -117,18 +119,14 @@ public class OrganizationFhirService {
      */
     public List<Organization> searchOrganizationsByName(String name) {
         try {
-            Bundle bundle = fhirClient.search()
+            Supplier<Bundle> search = () -> fhirClient.search()
                     .forResource(Organization.class)
                     .where(Organization.NAME.matches().value(name))
                     .returnBundle(Bundle.class)
+                    .count(pagingEngine.getPageSize())
                     .execute();
             
-            List<Organization> organizations = new ArrayList<>();
-            bundle.getEntry().forEach(entry -> {
-                if (entry.getResource() instanceof Organization) {
-                    organizations.add((Organization) entry.getResource());
-                }
-            });
+            List<Organization> organizations = pagingEngine.fetchAll(search, Organization.class);
             
             return organizations;
         } catch (Exception e) {
@@ -0,0 +1,36 @@
+package com.journalsystem.service.fhir;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Resources collected from every page of a search, with a flag for results that were
+ * cut off at the configured maximum rather than ending on the server's last page.
+ * Read-only, since coalesced searches hand the same instance to every caller.
+ */
+public class PagedResults<T> extends AbstractList<T> implements RandomAccess {
+
+    private final List<T> resources;
+    private final boolean truncated;
+
+    PagedResults(List<T> resources, boolean truncated) {
+        this.resources = Collections.unmodifiableList(resources);
+        this.truncated = truncated;
+    }
+
+    @Override
+    public T get(int index) {
+        return resources.get(index);
+    }
+
+    @Override
+    public int size() {
+        return resources.size();
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+}
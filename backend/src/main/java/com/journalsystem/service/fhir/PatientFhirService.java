@@ -1,34 +1,90 @@
 package com.journalsystem.service.fhir;
 
+import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import ca.uhn.fhir.rest.server.exceptions.MethodNotAllowedException;
+import ca.uhn.fhir.rest.server.exceptions.NotImplementedOperationException;
 import ca.uhn.fhir.util.BundleUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.hl7.fhir.r4.model.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ca.uhn.fhir.context.FhirContext;
 
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class PatientFhirService {
     
+    private static final Logger logger = LoggerFactory.getLogger(PatientFhirService.class);
+    
     @Autowired
     private IGenericClient fhirClient;
     
     @Autowired
     private FhirContext fhirContext;
     
+    @Autowired
+    private FhirResourceCache resourceCache;
+    
+    @Autowired
+    private FhirPagingEngine pagingEngine;
+    
+    @Autowired
+    private FhirRequestCoalescer coalescer;
+    
+    @Autowired
+    private ObservationFhirService observationFhirService;
+    
+    @Autowired
+    private EncounterFhirService encounterFhirService;
+    
+    @Autowired
+    private ConditionFhirService conditionFhirService;
+    
+    // Threads for the per-type fallback searches
+    @Value("${fhir.record.max-in-flight:8}")
+    private int maxInFlight;
+    
+    private ExecutorService executor;
+    
+    // Cleared the first time the server rejects $everything
+    private volatile boolean everythingSupported = true;
+    
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "fhir-record-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+    
     public Optional<Patient> getPatientById(String id) {
         try {
-            Patient patient = fhirClient
-                    .read()
-                    .resource(Patient.class)
-                    .withId(id)
-                    .execute();
-            return Optional.of(patient);
+            return Optional.of(resourceCache.read(Patient.class, id));
         } catch (Exception e) {
             return Optional.empty();
         }
@@ -53,51 +109,112 @@ public class PatientFhirService {
         }
     }
     
-    public List<Patient> getAllPatients() {
-        List<Patient> allPatients = new ArrayList<>();
-        
-        // First page - get 100 at a time for efficiency
-        Bundle bundle = fhirClient
+    /**
+     * All patients. Concurrent callers share one fetch, so the list is read-only.
+     */
+    public PagedResults<Patient> getAllPatients() {
+        return coalescer.execute("Patient", () -> pagingEngine.fetchAll(this::searchAllPatients, Patient.class));
+    }
+    
+    /**
+     * Stream all patients page by page, fetching the next page only as the caller gets to it
+     */
+    public Stream<List<Patient>> streamAllPatientPages() {
+        return pagingEngine.streamPages(this::searchAllPatients, Patient.class);
+    }
+    
+    private Bundle searchAllPatients() {
+        // Ask for the total so the paging engine can fetch the remaining pages concurrently
+        return fhirClient
                 .search()
                 .forResource(Patient.class)
                 .returnBundle(Bundle.class)
-                .count(100)
+                .count(pagingEngine.getPageSize())
+                .totalMode(SearchTotalModeEnum.ACCURATE)
                 .execute();
+    }
+    
+    /**
+     * Fetch a patient together with their observations, encounters and conditions.
+     * This is one Patient/$everything operation, paged through its next links, so
+     * nothing is lost to a cap on included resources. Servers without $everything
+     * get the three patient= searches instead, run concurrently. Concurrent callers
+     * asking for the same patient share one request.
+     */
+    public PatientRecord getPatientRecord(String patientId) {
+        return coalescer.execute("Patient/" + patientId + "/record", () -> {
+            if (everythingSupported) {
+                try {
+                    PatientRecord record = new PatientRecord();
+                    record.addEverything(patientId, pagingEngine.fetchAll(() -> everything(patientId), Resource.class));
+                    if (record.patient == null) {
+                        record.patient = getPatientById(patientId).orElse(null);
+                    }
+                    return record;
+                } catch (NotImplementedOperationException | MethodNotAllowedException | InvalidRequestException e) {
+                    logger.info("FHIR server does not support Patient/$everything, searching per type: {}", e.getMessage());
+                    everythingSupported = false;
+                }
+            }
+            return searchPatientRecord(patientId);
+        });
+    }
+    
+    private Bundle everything(String patientId) {
+        return fhirClient
+                .operation()
+                .onInstance(new IdType("Patient", patientId))
+                .named("$everything")
+                .withParameter(Parameters.class, "_count", new IntegerType(pagingEngine.getPageSize()))
+                .useHttpGet()
+                .returnResourceType(Bundle.class)
+                .execute();
+    }
+    
+    private PatientRecord searchPatientRecord(String patientId) {
+        Future<PagedResults<Observation>> observations = executor.submit(() -> observationFhirService.getObservationsByPatient(patientId));
+        Future<PagedResults<Encounter>> encounters = executor.submit(() -> encounterFhirService.getEncountersByPatient(patientId));
+        Future<PagedResults<Condition>> conditions = executor.submit(() -> conditionFhirService.getConditionsByPatient(patientId));
         
-        // Add patients from first page
-        allPatients.addAll(BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                .map(entry -> (Patient) entry.getResource())
-                .collect(Collectors.toList()));
-        
-        // Follow pagination links to get all remaining pages
-        while (bundle.getLink(Bundle.LINK_NEXT) != null) {
-            bundle = fhirClient
-                    .loadPage()
-                    .next(bundle)
-                    .execute();
-            
-            allPatients.addAll(BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                    .map(entry -> (Patient) entry.getResource())
-                    .collect(Collectors.toList()));
+        PatientRecord record = new PatientRecord();
+        record.patient = getPatientById(patientId).orElse(null);
+        record.add(record.observations, await(observations));
+        record.add(record.encounters, await(encounters));
+        record.add(record.conditions, await(conditions));
+        return record;
+    }
+    
+    private <T> T await(Future<T> result) {
+        // Every page fetch inside the search is already bounded by the paging timeout
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching patient record", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Failed to fetch patient record", e.getCause());
         }
-        
-        return allPatients;
     }
     
     public Patient createPatient(Patient patient) {
-        return (Patient) fhirClient
+        MethodOutcome outcome = fhirClient
                 .create()
                 .resource(patient)
-                .execute()
-                .getResource();
+                .execute();
+        resourceCache.refresh(patient, outcome);
+        return (Patient) outcome.getResource();
     }
     
     public Patient updatePatient(Patient patient) {
-        return (Patient) fhirClient
+        MethodOutcome outcome = fhirClient
                 .update()
                 .resource(patient)
-                .execute()
-                .getResource();
+                .execute();
+        resourceCache.refresh(patient, outcome);
+        return (Patient) outcome.getResource();
     }
     
     public void deletePatient(String id) {
@@ -105,5 +222,62 @@ public class PatientFhirService {
                 .delete()
                 .resourceById("Patient", id)
                 .execute();
+        resourceCache.invalidate("Patient", id);
+    }
+    
+    /**
+     * A patient and the clinical resources that reference them.
+     * Shared between concurrent callers, so the lists are read-only.
+     */
+    public static class PatientRecord {
+        private Patient patient;
+        private final List<Observation> observations = new ArrayList<>();
+        private final List<Encounter> encounters = new ArrayList<>();
+        private final List<Condition> conditions = new ArrayList<>();
+        private boolean truncated;
+        
+        private <T> void add(List<T> target, PagedResults<T> results) {
+            target.addAll(results);
+            truncated |= results.isTruncated();
+        }
+        
+        private void addEverything(String patientId, PagedResults<Resource> results) {
+            // Other compartment types ($everything returns them too) are not part of the chart
+            for (Resource resource : results) {
+                if (resource instanceof Patient found && patientId.equals(found.getIdElement().getIdPart())) {
+                    patient = found;
+                } else if (resource instanceof Observation observation) {
+                    observations.add(observation);
+                } else if (resource instanceof Encounter encounter) {
+                    encounters.add(encounter);
+                } else if (resource instanceof Condition condition) {
+                    conditions.add(condition);
+                }
+            }
+            truncated |= results.isTruncated();
+        }
+        
+        public Optional<Patient> getPatient() {
+            return Optional.ofNullable(patient);
+        }
+        
+        public List<Observation> getObservations() {
+            return Collections.unmodifiableList(observations);
+        }
+        
+        public List<Encounter> getEncounters() {
+            return Collections.unmodifiableList(encounters);
+        }
+        
+        public List<Condition> getConditions() {
+            return Collections.unmodifiableList(conditions);
+        }
+        
+        /**
+         * True when at least one of the lists stopped at the paging limit
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.journalsystem.service.fhir;
 
+import ca.uhn.fhir.rest.api.MethodOutcome;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
 import ca.uhn.fhir.util.BundleUtil;
 import org.hl7.fhir.r4.model.*;
@@ -10,6 +11,7 @@ import ca.uhn.fhir.context.FhirContext;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 @Service
 public class PractitionerFhirService {
@@ -20,14 +22,15 @@ public class PractitionerFhirService {
     @Autowired
     private FhirContext fhirContext;
     
+    @Autowired
+    private FhirResourceCache resourceCache;
+    
+    @Autowired
+    private FhirPagingEngine pagingEngine;
+    
     public Optional<Practitioner> getPractitionerById(String id) {
         try {
-            Practitioner practitioner = fhirClient
-                    .read()
-                    .resource(Practitioner.class)
-                    .withId(id)
-                    .execute();
-            return Optional.of(practitioner);
+            return Optional.of(resourceCache.read(Practitioner.class, id));
         } catch (Exception e) {
             return Optional.empty();
         }
@@ -53,31 +56,32 @@ public class PractitionerFhirService {
     }
     
     public List<Practitioner> getAllPractitioners() {
-        Bundle bundle = fhirClient
+        Supplier<Bundle> search = () -> fhirClient
                 .search()
                 .forResource(Practitioner.class)
                 .returnBundle(Bundle.class)
+                .count(pagingEngine.getPageSize())
                 .execute();
         
-        return BundleUtil.toListOfEntries(fhirContext, bundle).stream()
-                .map(entry -> (Practitioner) entry.getResource())
-                .collect(Collectors.toList());
+        return pagingEngine.fetchAll(search, Practitioner.class);
     }
     
     public Practitioner createPractitioner(Practitioner practitioner) {
-        return (Practitioner) fhirClient
+        MethodOutcome outcome = fhirClient
                 .create()
                 .resource(practitioner)
-                .execute()
-                .getResource();
+                .execute();
+        resourceCache.refresh(practitioner, outcome);
+        return (Practitioner) outcome.getResource();
     }
     
     public Practitioner updatePractitioner(Practitioner practitioner) {
-        return (Practitioner) fhirClient
+        MethodOutcome outcome = fhirClient
                 .update()
                 .resource(practitioner)
-                .execute()
-                .getResource();
+                .execute();
+        resourceCache.refresh(practitioner, outcome);
+        return (Practitioner) outcome.getResource();
     }
     
     public void deletePractitioner(String id) {
@@ -85,5 +89,6 @@ public class PractitionerFhirService {
                 .delete()
                 .resourceById("Practitioner", id)
                 .execute();
+        resourceCache.invalidate("Practitioner", id);
     }
 }
\ No newline at end of file
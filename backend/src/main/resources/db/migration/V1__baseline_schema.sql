@@ -0,0 +1,190 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update), plus the FHIR outbox
+-- and ID mapping tables. Databases created that way are baselined at V0 and run this
+-- too, so every statement skips what already exists and only adds what is missing.
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS organizations_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS patients_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS practitioners_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS locations_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS encounters_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS observations_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS conditions_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS messages_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS fhir_outbox_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS fhir_id_mappings_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS users (
+    id          BIGINT       NOT NULL,
+    username    VARCHAR(255) NOT NULL,
+    password    VARCHAR(255) NOT NULL,
+    email       VARCHAR(255) NOT NULL,
+    first_name  VARCHAR(255) NOT NULL,
+    last_name   VARCHAR(255) NOT NULL,
+    role        VARCHAR(255) NOT NULL CHECK (role IN ('PATIENT', 'DOCTOR', 'STAFF')),
+    created_at  TIMESTAMP(6) NOT NULL,
+    updated_at  TIMESTAMP(6),
+    CONSTRAINT users_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username)
+);
+
+CREATE TABLE IF NOT EXISTS organizations (
+    id           BIGINT       NOT NULL,
+    name         VARCHAR(255) NOT NULL,
+    address      VARCHAR(255),
+    phone_number VARCHAR(255),
+    email        VARCHAR(255),
+    type         VARCHAR(255),
+    created_at   TIMESTAMP(6) NOT NULL,
+    updated_at   TIMESTAMP(6),
+    CONSTRAINT organizations_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS patients (
+    id              BIGINT        NOT NULL,
+    user_id         BIGINT,
+    personal_number VARCHAR(255)  NOT NULL,
+    date_of_birth   DATE          NOT NULL,
+    address         VARCHAR(255),
+    phone_number    VARCHAR(255),
+    blood_type      VARCHAR(255),
+    allergies       VARCHAR(2000),
+    medications     VARCHAR(2000),
+    created_at      TIMESTAMP(6)  NOT NULL,
+    updated_at      TIMESTAMP(6),
+    CONSTRAINT patients_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_patients_user UNIQUE (user_id),
+    CONSTRAINT uk_patients_personal_number UNIQUE (personal_number),
+    CONSTRAINT fk_patients_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE TABLE IF NOT EXISTS practitioners (
+    id              BIGINT       NOT NULL,
+    user_id         BIGINT,
+    specialization  VARCHAR(255),
+    license_number  VARCHAR(255),
+    phone_number    VARCHAR(255),
+    organization_id BIGINT,
+    created_at      TIMESTAMP(6) NOT NULL,
+    updated_at      TIMESTAMP(6),
+    CONSTRAINT practitioners_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_practitioners_user UNIQUE (user_id),
+    CONSTRAINT fk_practitioners_user FOREIGN KEY (user_id) REFERENCES users (id),
+    CONSTRAINT fk_practitioners_organization FOREIGN KEY (organization_id) REFERENCES organizations (id)
+);
+
+CREATE TABLE IF NOT EXISTS locations (
+    id              BIGINT       NOT NULL,
+    name            VARCHAR(255) NOT NULL,
+    address         VARCHAR(255),
+    city            VARCHAR(255),
+    postal_code     VARCHAR(255),
+    country         VARCHAR(255),
+    type            VARCHAR(255),
+    organization_id BIGINT,
+    created_at      TIMESTAMP(6) NOT NULL,
+    updated_at      TIMESTAMP(6),
+    CONSTRAINT locations_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_locations_organization FOREIGN KEY (organization_id) REFERENCES organizations (id)
+);
+
+CREATE TABLE IF NOT EXISTS encounters (
+    id               BIGINT        NOT NULL,
+    patient_id       BIGINT        NOT NULL,
+    practitioner_id  BIGINT        NOT NULL,
+    location_id      BIGINT,
+    encounter_date   TIMESTAMP(6)  NOT NULL,
+    encounter_type   VARCHAR(255),
+    status           VARCHAR(255),
+    notes            VARCHAR(5000),
+    reason_for_visit VARCHAR(2000),
+    created_at       TIMESTAMP(6)  NOT NULL,
+    updated_at       TIMESTAMP(6),
+    CONSTRAINT encounters_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_encounters_patient FOREIGN KEY (patient_id) REFERENCES patients (id),
+    CONSTRAINT fk_encounters_practitioner FOREIGN KEY (practitioner_id) REFERENCES practitioners (id),
+    CONSTRAINT fk_encounters_location FOREIGN KEY (location_id) REFERENCES locations (id)
+);
+
+CREATE TABLE IF NOT EXISTS observations (
+    id               BIGINT        NOT NULL,
+    patient_id       BIGINT        NOT NULL,
+    encounter_id     BIGINT,
+    practitioner_id  BIGINT        NOT NULL,
+    observation_type VARCHAR(255)  NOT NULL,
+    value            VARCHAR(255)  NOT NULL,
+    unit             VARCHAR(255),
+    notes            VARCHAR(2000),
+    observation_date TIMESTAMP(6)  NOT NULL,
+    created_at       TIMESTAMP(6)  NOT NULL,
+    updated_at       TIMESTAMP(6),
+    CONSTRAINT observations_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_observations_patient FOREIGN KEY (patient_id) REFERENCES patients (id),
+    CONSTRAINT fk_observations_encounter FOREIGN KEY (encounter_id) REFERENCES encounters (id),
+    CONSTRAINT fk_observations_practitioner FOREIGN KEY (practitioner_id) REFERENCES practitioners (id)
+);
+
+CREATE TABLE IF NOT EXISTS conditions (
+    id              BIGINT        NOT NULL,
+    patient_id      BIGINT        NOT NULL,
+    practitioner_id BIGINT        NOT NULL,
+    encounter_id    BIGINT,
+    diagnosis       VARCHAR(255)  NOT NULL,
+    code            VARCHAR(255),
+    severity        VARCHAR(255),
+    status          VARCHAR(255),
+    diagnosis_date  TIMESTAMP(6)  NOT NULL,
+    notes           VARCHAR(2000),
+    created_at      TIMESTAMP(6)  NOT NULL,
+    updated_at      TIMESTAMP(6),
+    CONSTRAINT conditions_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_conditions_patient FOREIGN KEY (patient_id) REFERENCES patients (id),
+    CONSTRAINT fk_conditions_practitioner FOREIGN KEY (practitioner_id) REFERENCES practitioners (id),
+    CONSTRAINT fk_conditions_encounter FOREIGN KEY (encounter_id) REFERENCES encounters (id)
+);
+
+CREATE TABLE IF NOT EXISTS messages (
+    id                BIGINT        NOT NULL,
+    sender_id         BIGINT        NOT NULL,
+    receiver_id       BIGINT        NOT NULL,
+    subject           VARCHAR(255)  NOT NULL,
+    content           VARCHAR(5000) NOT NULL,
+    is_read           BOOLEAN       NOT NULL,
+    parent_message_id BIGINT,
+    sent_at           TIMESTAMP(6)  NOT NULL,
+    read_at           TIMESTAMP(6),
+    CONSTRAINT messages_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_messages_sender FOREIGN KEY (sender_id) REFERENCES users (id),
+    CONSTRAINT fk_messages_receiver FOREIGN KEY (receiver_id) REFERENCES users (id),
+    CONSTRAINT fk_messages_parent_message FOREIGN KEY (parent_message_id) REFERENCES messages (id)
+);
+
+CREATE TABLE IF NOT EXISTS fhir_outbox (
+    id              BIGINT        NOT NULL,
+    resource_type   VARCHAR(255)  NOT NULL,
+    resource_id     VARCHAR(255)  NOT NULL,
+    operation       VARCHAR(255)  NOT NULL CHECK (operation IN ('CREATE', 'UPDATE', 'DELETE')),
+    payload         TEXT,
+    status          VARCHAR(255)  NOT NULL CHECK (status IN ('PENDING', 'FAILED')),
+    attempts        INTEGER       NOT NULL,
+    next_attempt_at TIMESTAMP(6),
+    last_error      VARCHAR(2000),
+    created_at      TIMESTAMP(6)  NOT NULL,
+    CONSTRAINT fhir_outbox_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS fhir_id_mappings (
+    id            BIGINT       NOT NULL,
+    resource_type VARCHAR(255) NOT NULL,
+    local_id      BIGINT       NOT NULL,
+    fhir_id       VARCHAR(255) NOT NULL,
+    updated_at    TIMESTAMP(6) NOT NULL,
+    CONSTRAINT fhir_id_mappings_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_fhir_id_mappings_local UNIQUE (resource_type, local_id),
+    CONSTRAINT uk_fhir_id_mappings_fhir UNIQUE (resource_type, fhir_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_observations_patient_observation_date ON observations (patient_id, observation_date, id);
+CREATE INDEX IF NOT EXISTS idx_encounters_patient_encounter_date ON encounters (patient_id, encounter_date, id);
+CREATE INDEX IF NOT EXISTS idx_conditions_patient_diagnosis_date ON conditions (patient_id, diagnosis_date, id);
+CREATE INDEX IF NOT EXISTS idx_fhir_outbox_status_id ON fhir_outbox (status, id);
@@ -0,0 +1,26 @@
+-- Databases that predate sequence IDs may still have identity columns and IDs beyond
+-- what the sequences have handed out. Drop the identity defaults and move each sequence
+-- past the highest existing ID; on an already aligned database this changes nothing.
+
+DO $$
+DECLARE
+    tbl     TEXT;
+    max_id  BIGINT;
+    next_id BIGINT;
+BEGIN
+    FOREACH tbl IN ARRAY ARRAY['users', 'organizations', 'patients', 'practitioners', 'locations', 'encounters',
+                               'observations', 'conditions', 'messages', 'fhir_outbox', 'fhir_id_mappings']
+    LOOP
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', tbl);
+        EXECUTE format('CREATE SEQUENCE IF NOT EXISTS %I START WITH 1 INCREMENT BY 50', tbl || '_seq');
+        EXECUTE format('ALTER SEQUENCE %I INCREMENT BY 50', tbl || '_seq');
+
+        -- With the pooled-lo optimizer the last block handed out covers last_value .. last_value + 49
+        EXECUTE format('SELECT COALESCE(MAX(id), 0) FROM %I', tbl) INTO max_id;
+        EXECUTE format('SELECT CASE WHEN is_called THEN last_value + 50 ELSE last_value END FROM %I', tbl || '_seq')
+            INTO next_id;
+        IF max_id >= next_id THEN
+            PERFORM setval(tbl || '_seq', max_id + 1, false);
+        END IF;
+    END LOOP;
+END $$;
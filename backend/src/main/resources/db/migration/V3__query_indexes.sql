@@ -0,0 +1,25 @@
+-- Indexes for the repository finders. The per-patient (patient_id, date, id) indexes
+-- already exist and serve the newest-first listings by scanning backwards.
+
+-- Clinical data
+CREATE INDEX IF NOT EXISTS idx_observations_patient_observation_date ON observations (patient_id, observation_date, id);
+CREATE INDEX IF NOT EXISTS idx_encounters_patient_encounter_date ON encounters (patient_id, encounter_date, id);
+CREATE INDEX IF NOT EXISTS idx_conditions_patient_diagnosis_date ON conditions (patient_id, diagnosis_date, id);
+CREATE INDEX IF NOT EXISTS idx_observations_encounter ON observations (encounter_id);
+CREATE INDEX IF NOT EXISTS idx_encounters_practitioner ON encounters (practitioner_id);
+
+-- Messages: inbox, sent folder, unread and replies
+CREATE INDEX IF NOT EXISTS idx_messages_receiver_sent_at ON messages (receiver_id, sent_at DESC);
+CREATE INDEX IF NOT EXISTS idx_messages_sender_sent_at ON messages (sender_id, sent_at DESC);
+CREATE INDEX IF NOT EXISTS idx_messages_receiver_is_read ON messages (receiver_id, is_read);
+CREATE INDEX IF NOT EXISTS idx_messages_parent_message ON messages (parent_message_id);
+
+-- Reference data
+CREATE INDEX IF NOT EXISTS idx_practitioners_organization ON practitioners (organization_id);
+CREATE INDEX IF NOT EXISTS idx_locations_organization ON locations (organization_id);
+CREATE INDEX IF NOT EXISTS idx_locations_city ON locations (city);
+CREATE INDEX IF NOT EXISTS idx_users_email ON users (email);
+CREATE INDEX IF NOT EXISTS idx_users_role ON users (role);
+
+-- FHIR outbox
+CREATE INDEX IF NOT EXISTS idx_fhir_outbox_status_id ON fhir_outbox (status, id);
@@ -0,0 +1,23 @@
+-- Delta sync: every synced table is queried by updated_at, deletions are kept as tombstones
+
+ALTER TABLE messages ADD COLUMN updated_at TIMESTAMP(6);
+UPDATE messages SET updated_at = COALESCE(read_at, sent_at);
+
+CREATE INDEX idx_patients_updated_at ON patients (updated_at, id);
+CREATE INDEX idx_observations_updated_at ON observations (updated_at, id);
+CREATE INDEX idx_encounters_updated_at ON encounters (updated_at, id);
+CREATE INDEX idx_conditions_updated_at ON conditions (updated_at, id);
+CREATE INDEX idx_messages_sender_updated_at ON messages (sender_id, updated_at);
+CREATE INDEX idx_messages_receiver_updated_at ON messages (receiver_id, updated_at);
+
+CREATE SEQUENCE tombstones_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE tombstones (
+    id            BIGINT       NOT NULL,
+    resource_type VARCHAR(255) NOT NULL,
+    resource_id   BIGINT       NOT NULL,
+    deleted_at    TIMESTAMP(6) NOT NULL,
+    CONSTRAINT tombstones_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_tombstones_type_deleted_at ON tombstones (resource_type, deleted_at);
@@ -0,0 +1,11 @@
+-- Covering indexes for the paged inbox and outbox: the key matches the keyset order
+-- (sent_at DESC, id DESC) and the included columns are everything the header rows read
+-- from messages, so pages come from index-only scans without touching the table.
+
+DROP INDEX IF EXISTS idx_messages_receiver_sent_at;
+DROP INDEX IF EXISTS idx_messages_sender_sent_at;
+
+CREATE INDEX idx_messages_receiver_sent_at ON messages (receiver_id, sent_at DESC, id DESC)
+    INCLUDE (sender_id, subject, is_read, read_at, parent_message_id);
+CREATE INDEX idx_messages_sender_sent_at ON messages (sender_id, sent_at DESC, id DESC)
+    INCLUDE (receiver_id, subject, is_read, read_at, parent_message_id);
@@ -0,0 +1,11 @@
+-- Per-user unread message counter behind GET /messages/unread-count
+
+CREATE TABLE unread_counts (
+    user_id      BIGINT NOT NULL,
+    unread_count BIGINT NOT NULL,
+    CONSTRAINT unread_counts_pkey PRIMARY KEY (user_id),
+    CONSTRAINT fk_unread_counts_user FOREIGN KEY (user_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+INSERT INTO unread_counts (user_id, unread_count)
+SELECT receiver_id, COUNT(*) FROM messages WHERE is_read = false GROUP BY receiver_id;
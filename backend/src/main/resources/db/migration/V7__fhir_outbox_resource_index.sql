@@ -0,0 +1,4 @@
+-- The dispatcher only claims an entry when no earlier pending entry exists for the same
+-- resource; this index answers that check without scanning the queue.
+
+CREATE INDEX IF NOT EXISTS idx_fhir_outbox_resource ON fhir_outbox (resource_type, resource_id, id);
@@ -0,0 +1,8 @@
+-- Message tombstones name the sender and receiver, so a user's delta sync only lists
+-- deletions of their own messages. Older tombstones have neither and expire with retention.
+
+ALTER TABLE tombstones ADD COLUMN sender_id BIGINT;
+ALTER TABLE tombstones ADD COLUMN receiver_id BIGINT;
+
+CREATE INDEX idx_tombstones_sender_deleted_at ON tombstones (sender_id, deleted_at);
+CREATE INDEX idx_tombstones_receiver_deleted_at ON tombstones (receiver_id, deleted_at);
@@ -0,0 +1,253 @@
+package com.journalsystem;
+
+import com.journalsystem.dto.MessageThreadNode;
+import com.journalsystem.model.FhirOutboxEntry;
+import com.journalsystem.model.Message;
+import com.journalsystem.model.Role;
+import com.journalsystem.model.User;
+import com.journalsystem.repository.FhirOutboxRepository;
+import com.journalsystem.repository.UserRepository;
+import com.journalsystem.service.MessageService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The SQL the H2 tests cannot cover, run against a real PostgreSQL: the Flyway migrations
+ * (with their INCLUDE indexes) under schema validation, FOR UPDATE SKIP LOCKED, ON CONFLICT,
+ * the recursive thread query, and read-only routing to a replica pool. The replica pool
+ * logs in as a role that may only read, so the role a statement ran as shows which pool
+ * served it. Skipped when Docker is not available.
+ */
+@SpringBootTest(properties = {"fhir.enabled=false", "spring.jpa.show-sql=false"})
+@Testcontainers(disabledWithoutDocker = true)
+@DirtiesContext
+class PostgresIntegrationTest {
+
+    private static final String REPLICA_USER = "replica_reader";
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withInitScript("db/replica-role.sql");
+
+    @DynamicPropertySource
+    static void dataSources(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.replica.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.replica.username", () -> REPLICA_USER);
+        registry.add("spring.datasource.replica.password", () -> "replica");
+    }
+
+    @Autowired
+    private RoutingProbe probe;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FhirOutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User doctor;
+    private User patient;
+
+    @BeforeEach
+    void createUsers() {
+        doctor = user(Role.DOCTOR);
+        patient = user(Role.PATIENT);
+    }
+
+    @Test
+    void readOnlyTransactionsRunOnTheReplicaPool() {
+        assertThat(probe.userInReadOnlyTransaction()).isEqualTo(REPLICA_USER);
+        assertThat(probe.userInReadWriteTransaction()).isEqualTo(postgres.getUsername());
+    }
+
+    @Test
+    void replicaConnectionsAreReadOnly() {
+        assertThat(probe.readOnlySetting()).isEqualTo("on");
+        assertThatThrownBy(probe::writeInReadOnlyTransaction)
+                .rootCause()
+                .hasMessageContaining("read-only transaction");
+    }
+
+    @Test
+    void migrationsCreateTheCoveringInboxIndexes() {
+        List<String> definitions = jdbcTemplate.queryForList(
+                "SELECT indexdef FROM pg_indexes WHERE indexname IN " +
+                "('idx_messages_receiver_sent_at', 'idx_messages_sender_sent_at')", String.class);
+        assertThat(definitions).hasSize(2).allSatisfy(definition -> assertThat(definition).contains("INCLUDE"));
+    }
+
+    @Test
+    void dispatchersClaimDisjointBatchesInResourceOrder() {
+        FhirOutboxEntry firstWrite = outboxEntry("1");
+        FhirOutboxEntry secondWrite = outboxEntry("1");
+        FhirOutboxEntry otherResource = outboxEntry("2");
+        LocalDateTime now = LocalDateTime.now();
+
+        TransactionTemplate dispatcher = new TransactionTemplate(transactionManager);
+        TransactionTemplate otherDispatcher = new TransactionTemplate(transactionManager);
+        otherDispatcher.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        dispatcher.executeWithoutResult(status -> {
+            List<Long> claimed = ids(outboxRepository.claimDue(now, 1));
+            // Runs on its own connection while the first claim still holds its row lock
+            List<Long> claimedElsewhere = otherDispatcher.execute(inner -> ids(outboxRepository.claimDue(now, 10)));
+
+            assertThat(claimed).containsExactly(firstWrite.getId());
+            // The locked row is skipped, and the second write to its resource waits for it
+            assertThat(claimedElsewhere).containsExactly(otherResource.getId()).doesNotContain(secondWrite.getId());
+        });
+    }
+
+    @Test
+    void concurrentSendsCreateAndIncrementOneCounter() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> sends = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                sends.add(executor.submit(() -> {
+                    for (int j = 0; j < 5; j++) {
+                        send(doctor, patient, null);
+                    }
+                }));
+            }
+            for (Future<?> done : sends) {
+                done.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(messageService.getUnreadCount(patient.getUsername())).isEqualTo(40);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM unread_counts WHERE user_id = ?",
+                Integer.class, patient.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void threadIsReadInOrderByParticipantsOnly() {
+        Message root = send(doctor, patient, null);
+        Message reply = send(patient, doctor, root);
+        Message grandchild = send(doctor, patient, reply);
+        User outsider = user(Role.PATIENT);
+
+        List<MessageThreadNode> thread = messageService.getThread(patient.getUsername(), grandchild.getId());
+
+        assertThat(thread).extracting(MessageThreadNode::id)
+                .containsExactly(root.getId(), reply.getId(), grandchild.getId());
+        assertThat(thread).extracting(MessageThreadNode::depth).containsExactly(0, 1, 2);
+        assertThatThrownBy(() -> messageService.getThread(outsider.getUsername(), root.getId()))
+                .hasMessage("Message not found");
+    }
+
+    private FhirOutboxEntry outboxEntry(String resourceId) {
+        FhirOutboxEntry entry = new FhirOutboxEntry();
+        entry.setOperation(FhirOutboxEntry.Operation.DELETE);
+        entry.setResourceType("Patient");
+        entry.setResourceId(resourceId);
+        return outboxRepository.save(entry);
+    }
+
+    private static List<Long> ids(List<FhirOutboxEntry> entries) {
+        return entries.stream().map(FhirOutboxEntry::getId).toList();
+    }
+
+    private Message send(User sender, User receiver, Message parent) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setParentMessage(parent);
+        message.setSubject("Subject");
+        message.setContent("Content");
+        return messageService.createMessage(message);
+    }
+
+    private User user(Role role) {
+        String username = "postgres-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setEmail(username + "@example.com");
+        user.setFirstName(username);
+        user.setLastName("Test");
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+
+    @TestConfiguration
+    static class ProbeConfig {
+
+        @Bean
+        RoutingProbe routingProbe() {
+            return new RoutingProbe();
+        }
+    }
+
+    static class RoutingProbe {
+
+        @PersistenceContext
+        private EntityManager entityManager;
+
+        @Transactional(readOnly = true)
+        public String userInReadOnlyTransaction() {
+            return currentUser();
+        }
+
+        @Transactional
+        public String userInReadWriteTransaction() {
+            return currentUser();
+        }
+
+        @Transactional(readOnly = true)
+        public String readOnlySetting() {
+            return (String) entityManager.createNativeQuery("SHOW transaction_read_only").getSingleResult();
+        }
+
+        @Transactional(readOnly = true)
+        public void writeInReadOnlyTransaction() {
+            entityManager.createNativeQuery("INSERT INTO unread_counts (user_id, unread_count) VALUES (-1, 0)")
+                    .executeUpdate();
+        }
+
+        private String currentUser() {
+            return (String) entityManager.createNativeQuery("SELECT current_user").getSingleResult();
+        }
+    }
+}
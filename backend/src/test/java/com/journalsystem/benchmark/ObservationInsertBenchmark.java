@@ -0,0 +1,219 @@
+package com.journalsystem.benchmark;
+
+import com.journalsystem.model.Encounter;
+import com.journalsystem.model.Observation;
+import com.journalsystem.model.Patient;
+import com.journalsystem.model.Practitioner;
+import com.journalsystem.model.Role;
+import com.journalsystem.model.User;
+import com.journalsystem.service.ObservationService;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Inserts per second for ObservationService.createObservations with pooled-lo sequence IDs,
+ * against the same bulk path on a copy of the table that still uses an IDENTITY column.
+ * Skipped unless -Dbenchmark=true. Runs on the test profile's H2 by default; to measure
+ * against Postgres, point spring.datasource.* at a scratch database and set
+ * spring.flyway.enabled=true, spring.jpa.hibernate.ddl-auto=update and the Postgres dialect.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ObservationInsertBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(ObservationInsertBenchmark.class);
+
+    private static final int WARM_UP_ROWS = 5_000;
+
+    @Autowired
+    private ObservationService observationService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${benchmark.rows:100000}")
+    private int rows;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Test
+    void identityVersusPooledLo() {
+        Patient patient = transactionTemplate.execute(status -> createPatient());
+        Practitioner practitioner = transactionTemplate.execute(status -> createPractitioner());
+
+        // Warm up both paths so class loading and JIT are not part of the measurement
+        insertWithIdentity(WARM_UP_ROWS, patient, practitioner);
+        insertWithPooledLo(WARM_UP_ROWS, patient, practitioner);
+
+        double identity = insertWithIdentity(rows, patient, practitioner);
+        double pooledLo = insertWithPooledLo(rows, patient, practitioner);
+
+        logger.info("{} observations: IDENTITY {} rows/s, pooled-lo {} rows/s ({}x)",
+                rows, Math.round(identity), Math.round(pooledLo), String.format("%.1f", pooledLo / identity));
+        assertThat(count("IdentityObservation")).isEqualTo(WARM_UP_ROWS + rows);
+        assertThat(count("Observation")).isEqualTo(WARM_UP_ROWS + rows);
+    }
+
+    private double insertWithPooledLo(int count, Patient patient, Practitioner practitioner) {
+        List<Observation> observations = build(count, i -> {
+            Observation observation = new Observation();
+            observation.setPatient(patient);
+            observation.setPractitioner(practitioner);
+            observation.setObservationType("Pulse");
+            observation.setValue(Integer.toString(60 + i % 40));
+            observation.setUnit("bpm");
+            observation.setObservationDate(LocalDateTime.now());
+            return observation;
+        });
+
+        long start = System.nanoTime();
+        observationService.createObservations(observations);
+        return rate(count, start);
+    }
+
+    private double insertWithIdentity(int count, Patient patient, Practitioner practitioner) {
+        List<IdentityObservation> observations = build(count, i -> {
+            IdentityObservation observation = new IdentityObservation();
+            observation.setPatient(patient);
+            observation.setPractitioner(practitioner);
+            observation.setObservationType("Pulse");
+            observation.setValue(Integer.toString(60 + i % 40));
+            observation.setUnit("bpm");
+            observation.setObservationDate(LocalDateTime.now());
+            return observation;
+        });
+
+        // Same chunking as createObservations
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < observations.size(); i++) {
+                entityManager.persist(observations.get(i));
+                if ((i + 1) % batchSize == 0 || i == observations.size() - 1) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+        return rate(count, start);
+    }
+
+    private Patient createPatient() {
+        Patient patient = new Patient();
+        patient.setUser(createUser("benchmark-patient", Role.PATIENT));
+        patient.setPersonalNumber("199001010000");
+        patient.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        entityManager.persist(patient);
+        return patient;
+    }
+
+    private Practitioner createPractitioner() {
+        Practitioner practitioner = new Practitioner();
+        practitioner.setUser(createUser("benchmark-doctor", Role.DOCTOR));
+        entityManager.persist(practitioner);
+        return practitioner;
+    }
+
+    private User createUser(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setEmail(username + "@example.com");
+        user.setFirstName(username);
+        user.setLastName("Benchmark");
+        user.setRole(role);
+        entityManager.persist(user);
+        return user;
+    }
+
+    private long count(String entityName) {
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery("SELECT COUNT(o) FROM " + entityName + " o", Long.class)
+                .getSingleResult());
+    }
+
+    private static <T> List<T> build(int count, IntFunction<T> factory) {
+        List<T> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            items.add(factory.apply(i));
+        }
+        return items;
+    }
+
+    private static double rate(int count, long start) {
+        return count / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    /**
+     * The observations table as it was before the switch to sequences: same columns, IDENTITY key
+     */
+    @Entity(name = "IdentityObservation")
+    @Table(name = "identity_observations")
+    @Data
+    public static class IdentityObservation {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "patient_id", nullable = false)
+        private Patient patient;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "encounter_id")
+        private Encounter encounter;
+
+        @ManyToOne(fetch = FetchType.LAZY)
+        @JoinColumn(name = "practitioner_id", nullable = false)
+        private Practitioner practitioner;
+
+        @Column(nullable = false)
+        private String observationType;
+
+        @Column(nullable = false)
+        private String value;
+
+        private String unit;
+
+        @Column(length = 2000)
+        private String notes;
+
+        @Column(nullable = false)
+        private LocalDateTime observationDate;
+
+        @Column(nullable = false)
+        private LocalDateTime createdAt;
+
+        private LocalDateTime updatedAt;
+
+        @PrePersist
+        protected void onCreate() {
+            createdAt = LocalDateTime.now();
+            updatedAt = createdAt;
+        }
+    }
+}
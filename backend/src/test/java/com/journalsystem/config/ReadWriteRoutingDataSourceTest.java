@@ -0,0 +1,107 @@
+package com.journalsystem.config;
+
+import com.journalsystem.model.Role;
+import com.journalsystem.model.User;
+import com.journalsystem.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against two separate in-memory databases, so the database a statement reached
+ * tells which pool the routing data source handed out.
+ */
+@SpringBootTest(properties = "spring.datasource.replica.url=jdbc:h2:mem:replica;MODE=PostgreSQL;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("test")
+@DirtiesContext
+class ReadWriteRoutingDataSourceTest {
+
+    @Autowired
+    private RoutingProbe probe;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        assertThat(probe.databaseInReadOnlyTransaction()).isEqualToIgnoringCase("replica");
+    }
+
+    @Test
+    void readWriteTransactionsUseThePrimary() {
+        assertThat(probe.databaseInReadWriteTransaction()).isEqualToIgnoringCase("primary");
+    }
+
+    @Test
+    void repositoryWritesLandOnThePrimary() {
+        User user = new User();
+        user.setUsername("routing-test");
+        user.setPassword("secret");
+        user.setEmail("routing-test@example.com");
+        user.setFirstName("Routing");
+        user.setLastName("Test");
+        user.setRole(Role.STAFF);
+        userRepository.save(user);
+
+        Integer onPrimary = new JdbcTemplate(primaryDataSource)
+                .queryForObject("SELECT COUNT(*) FROM users WHERE username = 'routing-test'", Integer.class);
+        assertThat(onPrimary).isEqualTo(1);
+    }
+
+    @Test
+    void readOnlyTransactionsGetAReadOnlySession() {
+        assertThat(probe.sessionDefaultReadOnly()).isTrue();
+    }
+
+    @TestConfiguration
+    static class ProbeConfig {
+
+        @Bean
+        RoutingProbe routingProbe() {
+            return new RoutingProbe();
+        }
+    }
+
+    static class RoutingProbe {
+
+        @PersistenceContext
+        private EntityManager entityManager;
+
+        @Transactional(readOnly = true)
+        public String databaseInReadOnlyTransaction() {
+            return currentDatabase();
+        }
+
+        @Transactional
+        public String databaseInReadWriteTransaction() {
+            return currentDatabase();
+        }
+
+        @Transactional(readOnly = true)
+        public boolean sessionDefaultReadOnly() {
+            return entityManager.unwrap(Session.class).isDefaultReadOnly();
+        }
+
+        private String currentDatabase() {
+            return (String) entityManager.createNativeQuery("SELECT DATABASE()").getSingleResult();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.journalsystem.repository;
+
+import com.journalsystem.dto.ObservationRow;
+import com.journalsystem.model.*;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Walking a patient's timeline page by page must return every row exactly once, newest
+ * first, also when a page boundary falls inside a run of rows with the same timestamp.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@DirtiesContext
+class KeysetPagingTest {
+
+    private static final int PAGE_SIZE = 2;
+    private static final LocalDateTime TIE = LocalDateTime.of(2024, 1, 1, 12, 0);
+    // One row before and after a run of five rows sharing a timestamp, so every page of two
+    // after the first starts inside or at the edge of the run
+    private static final List<LocalDateTime> DATES = List.of(TIE.plusHours(1),
+            TIE, TIE, TIE, TIE, TIE, TIE.minusHours(1));
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObservationRepository observationRepository;
+
+    @Autowired
+    private EncounterRepository encounterRepository;
+
+    @Autowired
+    private ConditionRepository conditionRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    private Patient patient;
+    private final List<Observation> observations = new ArrayList<>();
+    private final List<Encounter> encounters = new ArrayList<>();
+    private final List<Condition> conditions = new ArrayList<>();
+    private final List<Message> messages = new ArrayList<>();
+
+    @BeforeEach
+    void createTimeline() {
+        User patientUser = user("paging-patient", Role.PATIENT);
+        patient = new Patient();
+        patient.setUser(patientUser);
+        patient.setPersonalNumber("199001019999");
+        patient.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        entityManager.persist(patient);
+
+        Practitioner practitioner = new Practitioner();
+        practitioner.setUser(user("paging-doctor", Role.DOCTOR));
+        entityManager.persist(practitioner);
+
+        for (LocalDateTime date : DATES) {
+            Encounter encounter = new Encounter();
+            encounter.setPatient(patient);
+            encounter.setPractitioner(practitioner);
+            encounter.setEncounterDate(date);
+            entityManager.persist(encounter);
+            encounters.add(encounter);
+
+            Observation observation = new Observation();
+            observation.setPatient(patient);
+            observation.setPractitioner(practitioner);
+            observation.setObservationType("Pulse");
+            observation.setValue("60");
+            observation.setObservationDate(date);
+            entityManager.persist(observation);
+            observations.add(observation);
+
+            Condition condition = new Condition();
+            condition.setPatient(patient);
+            condition.setPractitioner(practitioner);
+            condition.setDiagnosis("Diagnosis");
+            condition.setDiagnosisDate(date);
+            entityManager.persist(condition);
+            conditions.add(condition);
+
+            Message message = new Message();
+            message.setSender(practitioner.getUser());
+            message.setReceiver(patientUser);
+            message.setSubject("Subject");
+            message.setContent("Content");
+            entityManager.persist(message);
+            messages.add(message);
+        }
+        entityManager.flush();
+
+        // sentAt is set on persist, so the shared timestamps are written afterwards
+        for (int i = 0; i < messages.size(); i++) {
+            entityManager.createQuery("UPDATE Message m SET m.sentAt = :sentAt WHERE m.id = :id")
+                    .setParameter("sentAt", DATES.get(i))
+                    .setParameter("id", messages.get(i).getId())
+                    .executeUpdate();
+        }
+        entityManager.clear();
+    }
+
+    @Test
+    void observationsPagePastDuplicateTimestamps() {
+        List<Long> walked = walk(
+                () -> observationRepository.findRowsByPatientId(patient.getId(), Limit.of(PAGE_SIZE)),
+                (last, limit) -> observationRepository.findRowsByPatientIdBefore(patient.getId(),
+                        last.observationDate(), last.id(), limit),
+                ObservationRow::id);
+        assertThat(walked).containsExactlyElementsOf(newestFirst(observations,
+                Observation::getObservationDate, Observation::getId));
+    }
+
+    @Test
+    void encountersPagePastDuplicateTimestamps() {
+        List<Long> walked = walk(
+                () -> encounterRepository.findByPatientOrderByEncounterDateDescIdDesc(patient, Limit.of(PAGE_SIZE)),
+                (last, limit) -> encounterRepository.findByPatientBefore(patient,
+                        last.getEncounterDate(), last.getId(), limit),
+                Encounter::getId);
+        assertThat(walked).containsExactlyElementsOf(newestFirst(encounters,
+                Encounter::getEncounterDate, Encounter::getId));
+    }
+
+    @Test
+    void conditionsPagePastDuplicateTimestamps() {
+        List<Long> walked = walk(
+                () -> conditionRepository.findByPatientOrderByDiagnosisDateDescIdDesc(patient, Limit.of(PAGE_SIZE)),
+                (last, limit) -> conditionRepository.findByPatientBefore(patient,
+                        last.getDiagnosisDate(), last.getId(), limit),
+                Condition::getId);
+        assertThat(walked).containsExactlyElementsOf(newestFirst(conditions,
+                Condition::getDiagnosisDate, Condition::getId));
+    }
+
+    @Test
+    void inboxPagesPastDuplicateTimestamps() {
+        Long receiverId = patient.getUser().getId();
+        List<Long> walked = walk(
+                () -> messageRepository.findInboxHeaders(receiverId, Limit.of(PAGE_SIZE)),
+                (last, limit) -> messageRepository.findInboxHeadersBefore(receiverId,
+                        last.sentAt(), last.id(), limit),
+                header -> header.id());
+        // The entities still hold the sentAt of their insert; their DATES entry is what was stored
+        assertThat(walked).containsExactlyElementsOf(newestFirst(IntStream.range(0, messages.size()).boxed().toList(),
+                DATES::get, i -> messages.get(i).getId()));
+    }
+
+    /**
+     * IDs of every page in turn, each page fetched after the last row of the one before
+     */
+    private <T> List<Long> walk(Supplier<List<T>> firstPage, BiFunction<T, Limit, List<T>> pageAfter,
+                                Function<T, Long> idOf) {
+        List<Long> ids = new ArrayList<>();
+        List<T> page = firstPage.get();
+        while (!page.isEmpty()) {
+            page.forEach(row -> ids.add(idOf.apply(row)));
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            page = pageAfter.apply(page.get(page.size() - 1), Limit.of(PAGE_SIZE));
+        }
+        return ids;
+    }
+
+    private static <T> List<Long> newestFirst(List<T> rows, Function<T, LocalDateTime> dateOf, Function<T, Long> idOf) {
+        return rows.stream()
+                .sorted(Comparator.comparing(dateOf).thenComparing(idOf).reversed())
+                .map(idOf)
+                .toList();
+    }
+
+    private User user(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setEmail(username + "@example.com");
+        user.setFirstName(username);
+        user.setLastName("Test");
+        user.setRole(role);
+        entityManager.persist(user);
+        return user;
+    }
+}
@@ -0,0 +1,241 @@
+package com.journalsystem.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.journalsystem.config.SecondLevelCacheConfig;
+import com.journalsystem.model.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Each list endpoint must load everything it serializes in one statement, however many
+ * rows and distinct related entities there are. Results are detached and then serialized
+ * to JSON the way the controllers return them with open-in-view off, so any association
+ * the query left lazy fails the test rather than loading on demand.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SecondLevelCacheConfig.class)
+@ActiveProfiles("test")
+@DirtiesContext
+class ListQueryStatementCountTest {
+
+    private static final int PATIENTS = 3;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private PractitionerRepository practitionerRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private OrganizationRepository organizationRepository;
+
+    @Autowired
+    private ObservationRepository observationRepository;
+
+    @Autowired
+    private EncounterRepository encounterRepository;
+
+    @Autowired
+    private ConditionRepository conditionRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private Patient firstPatient;
+    private User firstUser;
+    private Observation firstObservation;
+    private Condition firstCondition;
+
+    @BeforeEach
+    void createChart() {
+        // Every row gets its own patient, practitioner, location and organization,
+        // so a per-row lazy load would show up as extra statements
+        for (int i = 0; i < PATIENTS; i++) {
+            Organization organization = new Organization();
+            organization.setName("Clinic " + i);
+            entityManager.persist(organization);
+
+            Location location = new Location();
+            location.setName("Room " + i);
+            location.setOrganization(organization);
+            entityManager.persist(location);
+
+            Practitioner practitioner = new Practitioner();
+            practitioner.setUser(user("doctor" + i, Role.DOCTOR));
+            practitioner.setOrganization(organization);
+            entityManager.persist(practitioner);
+
+            User patientUser = user("patient" + i, Role.PATIENT);
+            Patient patient = new Patient();
+            patient.setUser(patientUser);
+            patient.setPersonalNumber("19900101000" + i);
+            patient.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            entityManager.persist(patient);
+
+            // The encounter belongs to a different patient and practitioner than the rows that
+            // reference it, so its associations cannot be resolved from the top-level ones
+            Practitioner encounterPractitioner = new Practitioner();
+            encounterPractitioner.setUser(user("encounter-doctor" + i, Role.DOCTOR));
+            encounterPractitioner.setOrganization(organization);
+            entityManager.persist(encounterPractitioner);
+
+            Patient encounterPatient = new Patient();
+            encounterPatient.setUser(user("encounter-patient" + i, Role.PATIENT));
+            encounterPatient.setPersonalNumber("19900101100" + i);
+            encounterPatient.setDateOfBirth(LocalDate.of(1990, 1, 1));
+            entityManager.persist(encounterPatient);
+
+            Encounter encounter = new Encounter();
+            encounter.setPatient(encounterPatient);
+            encounter.setPractitioner(encounterPractitioner);
+            encounter.setLocation(location);
+            encounter.setEncounterDate(LocalDateTime.now().minusDays(i));
+            entityManager.persist(encounter);
+
+            Observation observation = new Observation();
+            observation.setPatient(patient);
+            observation.setPractitioner(practitioner);
+            observation.setEncounter(encounter);
+            observation.setObservationType("Pulse");
+            observation.setValue("60");
+            observation.setObservationDate(LocalDateTime.now().minusDays(i));
+            entityManager.persist(observation);
+
+            Condition condition = new Condition();
+            condition.setPatient(patient);
+            condition.setPractitioner(practitioner);
+            condition.setEncounter(encounter);
+            condition.setDiagnosis("Diagnosis " + i);
+            condition.setDiagnosisDate(LocalDateTime.now().minusDays(i));
+            entityManager.persist(condition);
+
+            Message message = new Message();
+            message.setSender(practitioner.getUser());
+            message.setReceiver(i == 0 ? patientUser : firstUser);
+            message.setSubject("Subject " + i);
+            message.setContent("Content " + i);
+            entityManager.persist(message);
+
+            if (i == 0) {
+                firstPatient = patient;
+                firstUser = patientUser;
+                firstObservation = observation;
+                firstCondition = condition;
+            }
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void patientLists() {
+        assertThat(statementsFor(() -> patientRepository.findAll())).isEqualTo(1);
+        assertThat(statementsFor(() -> patientRepository.findSummariesAfter(0L, Limit.of(10)))).isEqualTo(1);
+        // Matching FHIR patients to local ones by personal number, with their users
+        assertThat(statementsFor(() -> patientRepository.findByPersonalNumberInWithUser(
+                List.of("199001010000", "199001010001", "199001010002")))).isEqualTo(1);
+    }
+
+    @Test
+    void referenceDataLists() {
+        assertThat(statementsFor(() -> practitionerRepository.findAll())).isEqualTo(1);
+        assertThat(statementsFor(() -> locationRepository.findAll())).isEqualTo(1);
+        assertThat(statementsFor(() -> organizationRepository.findAll())).isEqualTo(1);
+    }
+
+    @Test
+    void observationLists() {
+        assertThat(statementsFor(() -> observationRepository.findAll())).isEqualTo(1);
+        assertThat(statementsFor(() -> observationRepository.findById(firstObservation.getId()))).isEqualTo(1);
+        assertThat(statementsFor(() -> observationRepository.findAllRows())).isEqualTo(1);
+        assertThat(statementsFor(() -> observationRepository.findRowsAfter(0L, Limit.of(10)))).isEqualTo(1);
+        assertThat(statementsFor(() -> observationRepository.findRowsByPatientId(firstPatient.getId()))).isEqualTo(1);
+    }
+
+    @Test
+    void encounterLists() {
+        assertThat(statementsFor(() -> encounterRepository.findAll())).isEqualTo(1);
+        assertThat(statementsFor(() -> encounterRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(10)))).isEqualTo(1);
+        assertThat(statementsFor(() -> encounterRepository.findByPatientOrderByEncounterDateDesc(firstPatient))).isEqualTo(1);
+    }
+
+    @Test
+    void conditionLists() {
+        assertThat(statementsFor(() -> conditionRepository.findAll())).isEqualTo(1);
+        assertThat(statementsFor(() -> conditionRepository.findById(firstCondition.getId()))).isEqualTo(1);
+        assertThat(statementsFor(() -> conditionRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(10)))).isEqualTo(1);
+        assertThat(statementsFor(() -> conditionRepository.findByPatientOrderByDiagnosisDateDesc(firstPatient))).isEqualTo(1);
+    }
+
+    @Test
+    void messageLists() {
+        assertThat(statementsFor(() -> messageRepository.findAll())).isEqualTo(1);
+        assertThat(statementsFor(() -> messageRepository.findHeadersByUser(firstUser.getId()))).isEqualTo(1);
+        assertThat(statementsFor(() -> messageRepository.findInboxHeaders(firstUser.getId(), Limit.of(10)))).isEqualTo(1);
+    }
+
+    /**
+     * Statements prepared to run the query, starting from an empty persistence context and
+     * empty second-level and query caches. The result is serialized only after it has been
+     * detached, so a lazy association in it throws instead of being loaded.
+     */
+    private long statementsFor(Supplier<?> listQuery) {
+        entityManager.clear();
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        Object result = listQuery.get();
+        long statements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+        try {
+            objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize list result", e);
+        }
+        return statements;
+    }
+
+    private User user(String username, Role role) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setEmail(username + "@example.com");
+        user.setFirstName(username);
+        user.setLastName("Test");
+        user.setRole(role);
+        entityManager.persist(user);
+        return user;
+    }
+}
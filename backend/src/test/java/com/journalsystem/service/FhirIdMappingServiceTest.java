@@ -0,0 +1,92 @@
+package com.journalsystem.service;
+
+import com.journalsystem.model.FhirIdMapping;
+import com.journalsystem.repository.FhirIdMappingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * mapAll runs on every FHIR patient read, so mappings that already hold must cost no
+ * write, and only the ones that are new or changed may be stored.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext
+class FhirIdMappingServiceTest {
+
+    @Autowired
+    private FhirIdMappingService fhirIdMappingService;
+
+    @SpyBean
+    private FhirIdMappingRepository mappingRepository;
+
+    // A type of its own per test, so nothing is already in memory or in the table
+    private String resourceType;
+
+    @BeforeEach
+    void newResourceType() {
+        resourceType = "Test" + UUID.randomUUID();
+    }
+
+    @Test
+    void repeatedMappingsAreNotWrittenAgain() {
+        fhirIdMappingService.mapAll(resourceType, Map.of(1L, "a", 2L, "b"));
+        clearInvocations(mappingRepository);
+
+        fhirIdMappingService.mapAll(resourceType, Map.of(1L, "a", 2L, "b"));
+
+        verifyNoInteractions(mappingRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void onlyChangedMappingsAreWritten() {
+        fhirIdMappingService.mapAll(resourceType, Map.of(1L, "a", 2L, "b"));
+        clearInvocations(mappingRepository);
+
+        fhirIdMappingService.mapAll(resourceType, Map.of(1L, "a", 2L, "c", 3L, "d"));
+
+        ArgumentCaptor<Iterable<FhirIdMapping>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(mappingRepository).saveAll(saved.capture());
+        List<Long> savedLocalIds = new ArrayList<>();
+        saved.getValue().forEach(mapping -> savedLocalIds.add(mapping.getLocalId()));
+        assertThat(savedLocalIds).containsExactlyInAnyOrder(2L, 3L);
+
+        assertThat(fhirIdMappingService.getFhirId(resourceType, 2L)).contains("c");
+        assertThat(fhirIdMappingService.getLocalId(resourceType, "b")).isEmpty();
+    }
+
+    @Test
+    void mappingsAlreadyInTheTableAreNotWrittenAgain() {
+        // Stored by another node: in the table but not in this node's memory
+        FhirIdMapping stored = new FhirIdMapping();
+        stored.setResourceType(resourceType);
+        stored.setLocalId(1L);
+        stored.setFhirId("a");
+        mappingRepository.save(stored);
+        clearInvocations(mappingRepository);
+
+        fhirIdMappingService.mapAll(resourceType, Map.of(1L, "a"));
+
+        verify(mappingRepository, never()).saveAll(any());
+        assertThat(fhirIdMappingService.getFhirId(resourceType, 1L)).contains("a");
+    }
+}
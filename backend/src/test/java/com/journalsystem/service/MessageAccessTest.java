@@ -0,0 +1,90 @@
+package com.journalsystem.service;
+
+import com.journalsystem.model.Message;
+import com.journalsystem.model.Role;
+import com.journalsystem.model.User;
+import com.journalsystem.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Message reads keyed by a user ID in the path serve only the authenticated user's own
+ * messages; anyone else's ID is rejected.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext
+class MessageAccessTest {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User doctor;
+    private User patient;
+    private User outsider;
+
+    @BeforeEach
+    void createUsers() {
+        doctor = user(Role.DOCTOR);
+        patient = user(Role.PATIENT);
+        outsider = user(Role.PATIENT);
+        send(doctor, patient, null);
+    }
+
+    @Test
+    void deltaSyncIsLimitedToTheCaller() {
+        LocalDateTime since = LocalDateTime.now().minusDays(1);
+
+        assertThat(messageService.getMessagesChangedSince(patient.getUsername(), patient.getId(), since)
+                .getItems()).hasSize(1);
+        assertThatThrownBy(() -> messageService.getMessagesChangedSince(outsider.getUsername(), patient.getId(), since))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void inboxAndOutboxPagesAreLimitedToTheCaller() {
+        assertThat(messageService.getReceivedMessagesPage(patient.getUsername(), patient.getId(), null, 10)
+                .getItems()).hasSize(1);
+        assertThat(messageService.getSentMessagesPage(doctor.getUsername(), doctor.getId(), null, 10)
+                .getItems()).hasSize(1);
+        assertThatThrownBy(() -> messageService.getReceivedMessagesPage(outsider.getUsername(), patient.getId(), null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> messageService.getSentMessagesPage(outsider.getUsername(), doctor.getId(), null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Message send(User sender, User receiver, Message parent) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setParentMessage(parent);
+        message.setSubject("Subject");
+        message.setContent("Content");
+        return messageService.createMessage(message);
+    }
+
+    private User user(Role role) {
+        String username = "access-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setEmail(username + "@example.com");
+        user.setFirstName(username);
+        user.setLastName("Test");
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,84 @@
+package com.journalsystem.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.journalsystem.model.Message;
+import com.journalsystem.model.Role;
+import com.journalsystem.model.User;
+import com.journalsystem.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * An opened message is serialized after its transaction has closed, as the controllers do
+ * without open-in-view, so nothing in the response may depend on a lazy association.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext
+class MessageReadTest {
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private User doctor;
+    private User patient;
+
+    @BeforeEach
+    void createUsers() {
+        doctor = user(Role.DOCTOR);
+        patient = user(Role.PATIENT);
+    }
+
+    @Test
+    void grandchildReplyIsReadable() throws Exception {
+        Message root = send(doctor, patient, null);
+        Message reply = send(patient, doctor, root);
+        Message grandchild = send(doctor, patient, reply);
+
+        JsonNode opened = objectMapper.valueToTree(messageService.getMessageById(grandchild.getId()));
+        assertThat(opened.get("content").asText()).isEqualTo("Content");
+        assertThat(opened.get("parentMessageId").asLong()).isEqualTo(reply.getId());
+        assertThat(opened.get("sender").get("username").asText()).isEqualTo(doctor.getUsername());
+
+        JsonNode read = objectMapper.valueToTree(messageService.markAsRead(grandchild.getId()));
+        assertThat(read.get("isRead").asBoolean()).isTrue();
+        assertThat(read.get("parentMessageId").asLong()).isEqualTo(reply.getId());
+    }
+
+    private Message send(User sender, User receiver, Message parent) {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setParentMessage(parent);
+        message.setSubject("Subject");
+        message.setContent("Content");
+        return messageService.createMessage(message);
+    }
+
+    private User user(Role role) {
+        String username = "reader-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setEmail(username + "@example.com");
+        user.setFirstName(username);
+        user.setLastName("Test");
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,127 @@
+package com.journalsystem.service;
+
+import com.journalsystem.dto.MarkReadRequest;
+import com.journalsystem.model.Message;
+import com.journalsystem.model.Role;
+import com.journalsystem.model.User;
+import com.journalsystem.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The unread counter must match the number of unread messages in the inbox after every
+ * send, read and delete, including sends that race each other.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext
+class UnreadCountTest {
+
+    private static final int THREADS = 8;
+    private static final int SENDS_PER_THREAD = 5;
+
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User sender;
+    private User receiver;
+
+    @BeforeEach
+    void createUsers() {
+        sender = user(Role.DOCTOR);
+        receiver = user(Role.PATIENT);
+    }
+
+    @Test
+    void firstMessageCreatesTheCounter() {
+        assertThat(messageService.getUnreadCount(receiver.getUsername())).isZero();
+
+        send();
+
+        assertThat(messageService.getUnreadCount(receiver.getUsername())).isEqualTo(1);
+    }
+
+    @Test
+    void counterFollowsReadsAndDeletes() {
+        Message first = send();
+        Message second = send();
+        Message third = send();
+        Message fourth = send();
+        assertThat(messageService.getUnreadCount(receiver.getUsername())).isEqualTo(4);
+
+        messageService.markAsRead(first.getId());
+        messageService.markAsRead(first.getId());
+        assertThat(messageService.getUnreadCount(receiver.getUsername())).isEqualTo(3);
+
+        // Deleting a read message leaves the counter alone, deleting an unread one lowers it
+        messageService.deleteMessage(first.getId());
+        messageService.deleteMessage(second.getId());
+        assertThat(messageService.getUnreadCount(receiver.getUsername())).isEqualTo(2);
+
+        MarkReadRequest request = new MarkReadRequest();
+        request.setIds(List.of(third.getId(), fourth.getId()));
+        assertThat(messageService.markAsRead(receiver.getUsername(), request)).isEqualTo(2);
+        assertThat(messageService.markAsRead(receiver.getUsername(), request)).isZero();
+        assertThat(messageService.getUnreadCount(receiver.getUsername())).isZero();
+    }
+
+    @Test
+    void concurrentSendsAreAllCounted() throws Exception {
+        send();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> sends = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                sends.add(executor.submit(() -> {
+                    for (int j = 0; j < SENDS_PER_THREAD; j++) {
+                        send();
+                    }
+                }));
+            }
+            for (Future<?> done : sends) {
+                done.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(messageService.getUnreadCount(receiver.getUsername())).isEqualTo(1 + THREADS * SENDS_PER_THREAD);
+    }
+
+    private Message send() {
+        Message message = new Message();
+        message.setSender(sender);
+        message.setReceiver(receiver);
+        message.setSubject("Subject");
+        message.setContent("Content");
+        return messageService.createMessage(message);
+    }
+
+    private User user(Role role) {
+        String username = "unread-" + UUID.randomUUID();
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("secret");
+        user.setEmail(username + "@example.com");
+        user.setFirstName(username);
+        user.setLastName("Test");
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+}
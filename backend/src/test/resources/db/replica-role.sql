@@ -0,0 +1,4 @@
+-- Login for the replica pool in PostgresIntegrationTest. It may only read, and
+-- current_user shows which pool a statement ran on.
+CREATE ROLE replica_reader LOGIN PASSWORD 'replica';
+ALTER DEFAULT PRIVILEGES IN SCHEMA public GRANT SELECT ON TABLES TO replica_reader;
@@ -123,10 +123,50 @@ export const messageAPI = {
   getReceived: (userId) => api.get(`/messages/received/${userId}`),
   getSent: (userId) => api.get(`/messages/sent/${userId}`),
   getUnread: (userId) => api.get(`/messages/unread/${userId}`),
+  getUnreadCount: () => api.get('/messages/unread-count'),
+  // Server-sent "message" events for new messages. EventSource cannot set headers, so each
+  // connection is opened with a single-use ticket; on error the spent ticket is not retried,
+  // a new one is fetched instead. Returns { close }.
+  stream: (onMessage) => {
+    let source = null;
+    let closed = false;
+    const reconnect = () => {
+      if (!closed) {
+        setTimeout(open, 3000);
+      }
+    };
+    const open = async () => {
+      try {
+        const { data } = await api.post('/messages/stream-ticket');
+        if (closed) {
+          return;
+        }
+        source = new EventSource(`${API_BASE_URL}/messages/stream?ticket=${encodeURIComponent(data.ticket)}`);
+        source.addEventListener('message', onMessage);
+        source.onerror = () => {
+          source.close();
+          reconnect();
+        };
+      } catch (error) {
+        reconnect();
+      }
+    };
+    open();
+    return {
+      close: () => {
+        closed = true;
+        if (source) {
+          source.close();
+        }
+      },
+    };
+  },
   getById: (id) => api.get(`/messages/${id}`),
   getReplies: (id) => api.get(`/messages/${id}/replies`),
+  getThread: (id) => api.get(`/messages/${id}/thread`),
   create: (data) => api.post('/messages', data),
   markAsRead: (id) => api.put(`/messages/${id}/read`),
+  markManyAsRead: (data) => api.put('/messages/read', data),
   delete: (id) => api.delete(`/messages/${id}`),
 };
 